@@ -0,0 +1,109 @@
+package account.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link PayslipFormatter} with the formatting {@link PaymentService} used before, over a year of payments.
+ * The build runs benchmarks with the {@code gc} profiler, so {@code gc.alloc.rate.norm} gives the bytes allocated
+ * per year of payments. Setup fails if both produce different output.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PayslipFormatterBenchmark {
+
+    private static final int ROWS = 12;
+
+    private final PayslipFormatter formatter = new PayslipFormatter();
+    private final int[] periods = new int[ROWS];
+    private final String[] legacyPeriods = new String[ROWS];
+    private final long[] salaries = new long[ROWS];
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < ROWS; i++) {
+            periods[i] = 2023_00 + i + 1;
+            legacyPeriods[i] = String.format("%02d-%d", periods[i] % 100, periods[i] / 100);
+            salaries[i] = ThreadLocalRandom.current().nextLong(10, 10_000_000);
+        }
+
+        for (int i = 0; i < ROWS; i++) {
+            if (!legacyFormatPeriod(legacyPeriods[i]).equals(formatter.formatPeriod(periods[i]))
+                    || !legacySalary(salaries[i]).equals(formatter.formatSalary(salaries[i]))) {
+                throw new IllegalStateException("Formatter output differs for " + periods[i] + "/" + salaries[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    public void payslipFormatter(Blackhole blackhole) {
+        for (int i = 0; i < ROWS; i++) {
+            blackhole.consume(formatter.formatPeriod(periods[i]));
+            blackhole.consume(formatter.formatSalary(salaries[i]));
+        }
+    }
+
+    @Benchmark
+    public void legacyFormatting(Blackhole blackhole) {
+        for (int i = 0; i < ROWS; i++) {
+            blackhole.consume(legacyFormatPeriod(legacyPeriods[i]));
+            blackhole.consume(legacySalary(salaries[i]));
+        }
+    }
+
+    /**
+     * {@code PaymentService.formatPeriod} before the formatter, when periods were stored as {@code MM-YYYY}.
+     */
+    private static String legacyFormatPeriod(String period) {
+        String[] periodArr = period.split("-");
+
+        Map<String, String> months = new HashMap<>();
+        months.put("01", "January");
+        months.put("02", "February");
+        months.put("03", "March");
+        months.put("04", "April");
+        months.put("05", "May");
+        months.put("06", "June");
+        months.put("07", "July");
+        months.put("08", "August");
+        months.put("09", "September");
+        months.put("10", "October");
+        months.put("11", "November");
+        months.put("12", "December");
+
+        return months.get(periodArr[0]) + "-" + periodArr[1];
+    }
+
+    /**
+     * {@code PaymentService.formatSalary} before the formatter.
+     */
+    private static String legacySalary(Long salary) {
+        String dollars = "";
+        char[] arr = salary.toString().toCharArray();
+        String cents = "";
+
+        for (int i = arr.length - 1; i >= arr.length - 2; i--) {
+            cents = arr[i] + cents;
+        }
+
+        for (int j = 0; j <= arr.length - 3; j++) {
+            dollars = dollars + arr[j];
+        }
+        if (dollars.isEmpty()) {
+            dollars = "0";
+        }
+        return String.format("%s dollar(s) %s cent(s)", dollars, cents);
+    }
+}
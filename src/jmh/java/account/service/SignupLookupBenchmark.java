@@ -0,0 +1,120 @@
+package account.service;
+
+import account.entity.AppUser;
+import account.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@link UserRepository} lookups {@link UserService#registerNewUser} runs before inserting a user, for
+ * growing user counts. The repository comes from a Spring context holding only the JPA layer of the application,
+ * on its own in-memory H2 database, so the benchmark goes through the same Spring Data proxies, Hibernate queries and
+ * {@code app_user} schema as signup. Both checks should stay flat as the table grows; add e.g. {@code "10000000"} to
+ * {@link #users} to measure larger tables, given enough heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SignupLookupBenchmark {
+
+    private static final int INSERT_BATCH_SIZE = 10_000;
+
+    @Configuration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = AppUser.class)
+    @EnableJpaRepositories(basePackageClasses = UserRepository.class)
+    static class JpaContext {
+    }
+
+    @Param({"10", "100000", "1000000"})
+    private int users;
+
+    private ConfigurableApplicationContext context;
+    private UserRepository userRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(JpaContext.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.datasource.url=jdbc:h2:mem:signup_benchmark_" + users,
+                        "spring.jpa.hibernate.ddl-auto=create-drop", "logging.level.root=WARN")
+                .run();
+        userRepository = context.getBean(UserRepository.class);
+
+        List<AppUser> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (int i = 0; i < users; i++) {
+            batch.add(new AppUser("Name" + i, "LastName" + i, email(i).toUpperCase(),
+                    "$2a$13$0000000000000000000000000000000000000000000000000000"));
+            if (batch.size() == INSERT_BATCH_SIZE) {
+                insert(batch);
+                batch.clear();
+            }
+        }
+        insert(batch);
+    }
+
+    /**
+     * Inserts the users the way {@code UserBatchRepository} does; saving them through JPA would take minutes for the
+     * larger tables, as Hibernate cannot batch inserts of {@code IDENTITY} ids.
+     */
+    private void insert(List<AppUser> batch) {
+        context.getBean(JdbcTemplate.class).batchUpdate("insert into app_user (name, last_name, username, " +
+                        "username_key, password, account_non_expired, account_non_locked, " +
+                        "credentials_non_expired, enabled, tokens_revoked_at) " +
+                        "values (?, ?, ?, ?, ?, true, true, true, true, ?)",
+                batch, batch.size(), (statement, user) -> {
+                    statement.setString(1, user.getName());
+                    statement.setString(2, user.getLastName());
+                    statement.setString(3, user.getUsername());
+                    statement.setString(4, user.getUsernameKey());
+                    statement.setString(5, user.getPassword());
+                    statement.setLong(6, user.getTokensRevokedAt());
+                });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public boolean existingEmail() {
+        String email = email(ThreadLocalRandom.current().nextInt(users)).toUpperCase();
+        return userRepository.existsByUsernameKey(AppUser.usernameKeyOf(email));
+    }
+
+    @Benchmark
+    public boolean newEmail() {
+        return userRepository.existsByUsernameKey(AppUser.usernameKeyOf("New.Employee@acme.com"));
+    }
+
+    @Benchmark
+    public boolean firstUserCheck() {
+        return userRepository.existsByIdNotNull();
+    }
+
+    private static String email(int index) {
+        return "employee" + index + "@acme.com";
+    }
+}
@@ -0,0 +1,85 @@
+package account.service.password;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the built-in list with a memory-mapped corpus of generated hashes, for passwords that are and are not
+ * part of the corpus. Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BreachedPasswordCheckerBenchmark {
+
+    @Param({"1000000"})
+    private int corpusSize;
+
+    private Path corpus;
+    private MappedBreachedPasswordChecker mappedChecker;
+    private StaticBreachedPasswordChecker staticChecker;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, NoSuchAlgorithmException {
+        MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+        byte[][] hashes = new byte[corpusSize][];
+        for (int i = 0; i < corpusSize; i++) {
+            hashes[i] = sha1.digest(breachedPassword(i).getBytes(StandardCharsets.UTF_8));
+        }
+        Arrays.sort(hashes, Arrays::compareUnsigned);
+
+        corpus = Files.createTempFile("breached-passwords-benchmark", ".bin");
+        try (OutputStream outputStream = Files.newOutputStream(corpus)) {
+            for (byte[] hash : hashes) {
+                outputStream.write(hash);
+            }
+        }
+
+        mappedChecker = new MappedBreachedPasswordChecker(corpus, 0.01, 0);
+        staticChecker = new StaticBreachedPasswordChecker();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        mappedChecker.close();
+        Files.deleteIfExists(corpus);
+        Files.deleteIfExists(corpus.resolveSibling(corpus.getFileName() + ".bloom"));
+    }
+
+    @Benchmark
+    public boolean staticList() {
+        return staticChecker.isBreached("CorrectHorseBatteryStaple");
+    }
+
+    @Benchmark
+    public boolean mappedCorpusMiss() {
+        return mappedChecker.isBreached("CorrectHorseBatteryStaple");
+    }
+
+    @Benchmark
+    public boolean mappedCorpusHit() {
+        return mappedChecker.isBreached(breachedPassword(corpusSize / 2));
+    }
+
+    private static String breachedPassword(int index) {
+        return "BreachedPassword" + index;
+    }
+}
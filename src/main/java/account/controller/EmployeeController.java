@@ -1,9 +1,13 @@
 package account.controller;
 
 import account.dto.PaymentDetailsDto;
+import account.dto.PaymentDto;
+import account.dto.PaymentPageDto;
 import account.entity.AppUser;
 import account.service.PaymentService;
 import io.swagger.v3.oas.annotations.Operation;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.Pattern;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -18,6 +22,8 @@ import java.util.Optional;
 @RestController
 public class EmployeeController {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     private PaymentService paymentService;
 
     @Autowired
@@ -25,11 +31,29 @@ public class EmployeeController {
         this.paymentService = paymentService;
     }
 
-    @Operation(summary = "Lists all logged in user´s payments in a specific period")
+    @Operation(summary = "Lists all logged in user´s payments in a specific period or between two periods")
     @GetMapping("/api/empl/payment")
     public List<PaymentDetailsDto> payments(@AuthenticationPrincipal AppUser details,
                                             @RequestParam(required = false)
-                                            @Pattern(regexp = "^[0-9]{1,2}-[1-9][0-9]{3}$") String period){
-        return paymentService.findUserPayments(Optional.ofNullable(period), details.getUsername());
+                                            @Pattern(regexp = "^[0-9]{1,2}-[1-9][0-9]{3}$") String period,
+                                            @RequestParam(required = false)
+                                            @Pattern(regexp = PaymentDto.PERIOD_REGEXP) String from,
+                                            @RequestParam(required = false)
+                                            @Pattern(regexp = PaymentDto.PERIOD_REGEXP) String to){
+        return paymentService.findUserPayments(Optional.ofNullable(period), Optional.ofNullable(from),
+                Optional.ofNullable(to), details.getUsername());
+    }
+
+    @Operation(summary = "Lists logged in user´s payments one page at a time, following the returned cursor")
+    @GetMapping(path = "/api/empl/payment", params = "limit")
+    public PaymentPageDto paymentsPage(@AuthenticationPrincipal AppUser details,
+                                       @RequestParam @Min(1) @Max(MAX_PAGE_SIZE) int limit,
+                                       @RequestParam(required = false) String cursor,
+                                       @RequestParam(required = false)
+                                       @Pattern(regexp = PaymentDto.PERIOD_REGEXP) String from,
+                                       @RequestParam(required = false)
+                                       @Pattern(regexp = PaymentDto.PERIOD_REGEXP) String to){
+        return paymentService.findUserPaymentsPage(Optional.ofNullable(from), Optional.ofNullable(to),
+                Optional.ofNullable(cursor), limit, details.getUsername());
     }
 }
@@ -0,0 +1,40 @@
+package account.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Writes DTOs to a response as newline-delimited JSON, flushing after every batch so clients see results of long
+ * running requests as they are produced.
+ */
+class NdjsonResponseWriter {
+
+    private final ObjectWriter writer;
+    private final OutputStream outputStream;
+
+    NdjsonResponseWriter(ObjectMapper objectMapper, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        this.writer = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        this.outputStream = response.getOutputStream();
+    }
+
+    void write(List<?> values) {
+        try {
+            for (Object value : values) {
+                outputStream.write(writer.writeValueAsBytes(value));
+                outputStream.write('\n');
+            }
+            outputStream.flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
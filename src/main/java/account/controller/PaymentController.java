@@ -3,38 +3,198 @@ package account.controller;
 import account.dto.PaymentDto;
 import account.dto.StatusDto;
 import account.entity.AppUser;
+import account.service.IdempotencyStore;
+import account.service.PaymentExportService;
+import account.service.PaymentIngestionService;
 import account.service.PaymentService;
+import account.service.snapshot.PayrollSnapshotService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import io.swagger.v3.oas.annotations.Operation;
-import jakarta.validation.Valid;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
+import jakarta.validation.constraints.Pattern;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
 
 @Validated
 @RestController
 public class PaymentController {
 
+    private static final String TEXT_CSV_VALUE = "text/csv";
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
     private final PaymentService paymentService;
+    private final PaymentIngestionService paymentIngestionService;
+    private final PaymentExportService paymentExportService;
+    private final PayrollSnapshotService payrollSnapshotService;
+    private final IdempotencyStore idempotencyStore;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public PaymentController(PaymentService paymentService){
+    public PaymentController(PaymentService paymentService, PaymentIngestionService paymentIngestionService,
+                             PaymentExportService paymentExportService,
+                             PayrollSnapshotService payrollSnapshotService, IdempotencyStore idempotencyStore,
+                             Validator validator, ObjectMapper objectMapper){
         this.paymentService = paymentService;
+        this.paymentIngestionService = paymentIngestionService;
+        this.paymentExportService = paymentExportService;
+        this.payrollSnapshotService = payrollSnapshotService;
+        this.idempotencyStore = idempotencyStore;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
     }
 
+    /**
+     * Uploads sent with an {@value #IDEMPOTENCY_KEY_HEADER} header are run once per key; retries with the same key and
+     * payload get the stored response, flagged by {@value #IDEMPOTENT_REPLAYED_HEADER}, without being validated or
+     * touching the database again.
+     */
     @Operation(summary = "Adds a new payment to logged in user")
     @PostMapping("/api/acct/payments")
-    public StatusDto addPayments(@AuthenticationPrincipal AppUser details,
-                                 @RequestBody List<@Valid PaymentDto> paymentDtos){
-        paymentService.addNewPayments(paymentDtos);
+    public ResponseEntity<StatusDto> addPayments(@AuthenticationPrincipal AppUser details,
+                                                 @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false)
+                                                 String idempotencyKey,
+                                                 @RequestBody List<PaymentDto> paymentDtos){
+        if(idempotencyKey == null){
+            return ResponseEntity.ok(addValidPayments(paymentDtos));
+        }
+
+        IdempotencyStore.Outcome<StatusDto> outcome = idempotencyStore.execute(details.getUsername(), idempotencyKey,
+                digest(paymentDtos), () -> addValidPayments(paymentDtos));
+        return ResponseEntity.ok()
+                .header(IDEMPOTENT_REPLAYED_HEADER, Boolean.toString(outcome.replayed()))
+                .body(outcome.result());
+    }
+
+    private StatusDto addValidPayments(List<PaymentDto> paymentDtos){
+        Set<ConstraintViolation<?>> violations = new HashSet<>();
+        List<String> messages = new ArrayList<>();
+        for(int i = 0; i < paymentDtos.size(); i++){
+            for(ConstraintViolation<PaymentDto> violation : validator.validate(paymentDtos.get(i))){
+                violations.add(violation);
+                messages.add("addPayments.paymentDtos[" + i + "]." + violation.getPropertyPath() + ": " +
+                        violation.getMessage());
+            }
+        }
+        if(!violations.isEmpty()){
+            throw new ConstraintViolationException(String.join(", ", messages), violations);
+        }
+
+        paymentService.addUserPayments(paymentDtos);
         return new StatusDto("Added successfully!");
     }
 
+    private static String digest(List<PaymentDto> paymentDtos){
+        Hasher hasher = Hashing.sha256().newHasher();
+        for(PaymentDto paymentDto : paymentDtos){
+            hasher.putString(String.valueOf(paymentDto.getEmployee()), StandardCharsets.UTF_8).putByte((byte) 0)
+                    .putString(String.valueOf(paymentDto.getPeriod()), StandardCharsets.UTF_8).putByte((byte) 0)
+                    .putString(String.valueOf(paymentDto.getSalary()), StandardCharsets.UTF_8).putByte((byte) 0);
+        }
+        return hasher.hash().toString();
+    }
+
+    @Operation(summary = "Adds payments from an NDJSON or CSV stream; streams back rejected rows and progress")
+    @PostMapping(path = "/api/acct/payments/stream", consumes = {MediaType.APPLICATION_NDJSON_VALUE, TEXT_CSV_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void ingestPayments(HttpServletRequest request, HttpServletResponse response) throws IOException {
+
+        NdjsonResponseWriter eventWriter = new NdjsonResponseWriter(objectMapper, response);
+        if(MediaType.parseMediaType(request.getContentType()).isCompatibleWith(MediaType.APPLICATION_NDJSON)){
+            paymentIngestionService.ingestNdjson(request.getInputStream(), eventWriter::write);
+        } else {
+            paymentIngestionService.ingestCsv(request.getInputStream(), eventWriter::write);
+        }
+    }
+
+    @Operation(summary = "Corrects salaries of many payments from a JSON array or NDJSON stream; streams back " +
+            "rows that did not match and progress")
+    @PutMapping(path = "/api/acct/payments/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_NDJSON_VALUE}, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void correctPayments(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        NdjsonResponseWriter eventWriter = new NdjsonResponseWriter(objectMapper, response);
+        paymentIngestionService.correctSalaries(request.getInputStream(), eventWriter::write);
+    }
+
+    @Operation(summary = "Exports all payments, optionally between two periods, as CSV or NDJSON; gzip compressed " +
+            "when the client accepts it")
+    @GetMapping("/api/acct/payments/export")
+    public ResponseEntity<StreamingResponseBody> exportPayments(@RequestParam(defaultValue = "csv")
+                                                                @Pattern(regexp = "csv|ndjson") String format,
+                                                                @RequestParam(required = false)
+                                                                @Pattern(regexp = PaymentDto.PERIOD_REGEXP) String from,
+                                                                @RequestParam(required = false)
+                                                                @Pattern(regexp = PaymentDto.PERIOD_REGEXP) String to,
+                                                                @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING,
+                                                                        required = false) String acceptEncoding){
+
+        PaymentExportService.Format exportFormat = PaymentExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        boolean gzip = acceptsGzip(acceptEncoding);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(exportFormat == PaymentExportService.Format.CSV
+                        ? MediaType.parseMediaType(TEXT_CSV_VALUE) : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename("payments." + format).build().toString())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if(gzip){
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        return response.body(outputStream -> paymentExportService.export(Optional.ofNullable(from),
+                Optional.ofNullable(to), exportFormat, gzip ? new GZIPOutputStream(outputStream, true) : outputStream));
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding){
+        if(acceptEncoding == null){
+            return false;
+        }
+        for(String coding : acceptEncoding.split(",")){
+            String[] parts = coding.trim().split(";");
+            if(parts[0].trim().equalsIgnoreCase("gzip")){
+                return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    @Operation(summary = "Closes a payroll period: its payments can no longer change and are read from a snapshot")
+    @PostMapping("/api/acct/payments/close")
+    public StatusDto closePeriod(@RequestParam @Pattern(regexp = PaymentDto.PERIOD_REGEXP) String period){
+        int payments = payrollSnapshotService.closePeriod(period);
+        return new StatusDto(String.format("Closed period with %d payments!", payments));
+    }
+
     @Operation(summary = "Updates user´s payments")
     @PutMapping("/api/acct/payments")
     public StatusDto updatePayments(@RequestBody PaymentDto paymentDto){
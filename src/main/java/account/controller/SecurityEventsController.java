@@ -1,23 +1,49 @@
 package account.controller;
 
+import account.dto.SecurityEventCountDto;
 import account.dto.SecurityEventDto;
+import account.dto.SecurityEventPageDto;
+import account.enums.SecureEventActionEnum;
+import account.repository.SecurityEventCountFilter;
+import account.repository.SecurityEventCountFilter.Dimension;
+import account.repository.SecurityEventCountFilter.Granularity;
+import account.repository.SecurityEventFilter;
 import account.service.SecurityEventsService;
+import account.service.audit.SecurityEventTail;
 import io.swagger.v3.oas.annotations.Operation;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+@Validated
 @RestController
 public class SecurityEventsController {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_COUNT_ROWS = 10000;
+
     private final SecurityEventsService securityEventsService;
+    private final SecurityEventTail securityEventTail;
 
     @Autowired
-    public SecurityEventsController(SecurityEventsService securityEventsService) {
+    public SecurityEventsController(SecurityEventsService securityEventsService,
+                                    SecurityEventTail securityEventTail) {
         this.securityEventsService = securityEventsService;
+        this.securityEventTail = securityEventTail;
     }
 
     @Operation(summary = "Retrieves all events in the system for auditing purposes")
@@ -26,4 +52,49 @@ public class SecurityEventsController {
         return securityEventsService.getAllSecurityEvents().stream()
                 .map(SecurityEventDto::toDto).collect(Collectors.toList());
     }
+
+    @Operation(summary = "Lists events newest first, one page at a time, filtered by action, subject, path and/or " +
+            "date range")
+    @GetMapping(path = {"/api/security/events", "/api/security/events/"}, params = "limit")
+    public SecurityEventPageDto getSecurityEventsPage(@RequestParam @Min(1) @Max(MAX_PAGE_SIZE) int limit,
+                                                      @RequestParam(required = false) String cursor,
+                                                      @RequestParam(required = false) SecureEventActionEnum action,
+                                                      @RequestParam(required = false) String subject,
+                                                      @RequestParam(required = false) String path,
+                                                      @RequestParam(required = false)
+                                                      @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                      @RequestParam(required = false)
+                                                      @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to){
+        SecurityEventFilter filter = new SecurityEventFilter(action == null ? null : action.getName(), subject, path,
+                from, to);
+        return securityEventsService.findSecurityEvents(filter, Optional.ofNullable(cursor), limit);
+    }
+
+    @Operation(summary = "Counts events per hour or day, broken down by action, subject and/or path")
+    @GetMapping("/api/security/events/counts")
+    public List<SecurityEventCountDto> countSecurityEvents(@RequestParam(defaultValue = "HOUR") Granularity granularity,
+                                                           @RequestParam(required = false) Set<Dimension> groupBy,
+                                                           @RequestParam(defaultValue = "1000") @Min(1)
+                                                           @Max(MAX_COUNT_ROWS) int limit,
+                                                           @RequestParam(required = false)
+                                                           SecureEventActionEnum action,
+                                                           @RequestParam(required = false) String subject,
+                                                           @RequestParam(required = false) String path,
+                                                           @RequestParam(required = false)
+                                                           @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+                                                           LocalDate from,
+                                                           @RequestParam(required = false)
+                                                           @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+                                                           LocalDate to){
+        SecurityEventCountFilter filter = new SecurityEventCountFilter(granularity,
+                groupBy == null ? Set.of() : groupBy, action == null ? null : action.getName(), subject, path,
+                from, to);
+        return securityEventsService.countSecurityEvents(filter, limit);
+    }
+
+    @Operation(summary = "Streams new events as Server-Sent Events, resuming after Last-Event-ID when given")
+    @GetMapping(path = "/api/security/events/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamSecurityEvents(@RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId){
+        return securityEventTail.subscribe(Optional.ofNullable(lastEventId));
+    }
 }
@@ -1,6 +1,7 @@
 package account.controller;
 
 import account.dto.AccessActionDto;
+import account.dto.AccessTokenDto;
 import account.dto.ChangePassDto;
 import account.dto.ChangePassRespDto;
 import account.dto.RoleActionDto;
@@ -9,8 +10,13 @@ import account.dto.UserDto;
 import account.entity.AppUser;
 import account.entity.Role;
 import account.enums.AccessActionEnum;
+import account.security.AccessTokenService;
+import account.service.UserProvisioningService;
 import account.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,6 +31,7 @@ import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import java.io.IOException;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
@@ -35,18 +42,27 @@ import java.util.stream.Collectors;
 public class UserController {
 
     private final UserService userService;
+    private final AccessTokenService accessTokenService;
+    private final UserProvisioningService userProvisioningService;
+    private final ObjectMapper objectMapper;
 
     public static final String AUHT_SIGNUP_URL = "/api/auth/signup";
     public static final String AUTH_CHANGE_PASS_URL = "/api/auth/changepass";
+    public static final String AUTH_TOKEN_URL = "/api/auth/token";
     public static final String ADMIN_USER_ROLE = "/api/admin/user/role";
     public static final String ADMIN_USER = "/api/admin/user/";
     public static final String ADMIN_USER_ACCESS = "/api/admin/user/access";
 
     public static final String ADMIN_USER_DELETE = "/api/admin/user";
+    public static final String ADMIN_USER_BULK = "/api/admin/user/bulk";
 
     @Autowired
-    public UserController(UserService userService){
+    public UserController(UserService userService, AccessTokenService accessTokenService,
+                          UserProvisioningService userProvisioningService, ObjectMapper objectMapper){
         this.userService = userService;
+        this.accessTokenService = accessTokenService;
+        this.userProvisioningService = userProvisioningService;
+        this.objectMapper = objectMapper;
     }
 
     @Operation(summary = "Creates a new user")
@@ -67,6 +83,17 @@ public class UserController {
                         .collect(Collectors.toList()));
     }
 
+    @Operation(summary = "Creates users in bulk from a JSON array or NDJSON stream; streams back one result per user")
+    @PostMapping(path = ADMIN_USER_BULK, consumes = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_NDJSON_VALUE}, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void provisionUsers(@AuthenticationPrincipal AppUser loggedInUser, HttpServletRequest request,
+                               HttpServletResponse response) throws IOException {
+
+        NdjsonResponseWriter resultWriter = new NdjsonResponseWriter(objectMapper, response);
+        userProvisioningService.provisionUsers(request.getInputStream(), loggedInUser.getUsername(),
+                resultWriter::write);
+    }
+
     @Operation(summary = "Changes user's password")
     @PostMapping(path = AUTH_CHANGE_PASS_URL, consumes = MediaType.APPLICATION_JSON_VALUE)
     public ChangePassRespDto changePass(@Valid @RequestBody ChangePassDto changePassDto,
@@ -78,6 +105,12 @@ public class UserController {
         return new ChangePassRespDto(userEmail.toLowerCase(), status);
     }
 
+    @Operation(summary = "Exchanges Basic credentials for a short-lived access token")
+    @PostMapping(path = AUTH_TOKEN_URL)
+    public AccessTokenDto issueToken(@AuthenticationPrincipal AppUser loggedInUser){
+        return accessTokenService.issueToken(loggedInUser);
+    }
+
     @Operation(summary = "Adds/removes an user role")
     @PutMapping(path = ADMIN_USER_ROLE, consumes = MediaType.APPLICATION_JSON_VALUE)
     public UserDto setUserRole(@RequestBody RoleActionDto actionDto,
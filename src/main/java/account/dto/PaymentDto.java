@@ -16,16 +16,25 @@ import lombok.Setter;
 @NoArgsConstructor
 public class PaymentDto {
 
-    @Email(message = "Not a valid e-mail format", regexp = "^[a-zA-Z0-9_\\.]+@acme.com$")
-    @NotEmpty(message = "Email cannot be null or empty")
+    public static final String EMPLOYEE_REGEXP = "^[a-zA-Z0-9_\\.]+@acme.com$";
+    public static final String PERIOD_REGEXP = "^(0?[1-9]|1[012])-[1-9][0-9]{3}$";
+
+    public static final String INVALID_EMPLOYEE_MESSAGE = "Not a valid e-mail format";
+    public static final String EMPTY_EMPLOYEE_MESSAGE = "Email cannot be null or empty";
+    public static final String INVALID_PERIOD_MESSAGE = "Period must have format as MM-YYYY!";
+    public static final String INVALID_SALARY_MESSAGE = "Salary must be greater than zero!";
+
+    @Email(message = INVALID_EMPLOYEE_MESSAGE, regexp = EMPLOYEE_REGEXP)
+    @NotEmpty(message = EMPTY_EMPLOYEE_MESSAGE)
     private String employee;
-    @Pattern(regexp = "^(0?[1-9]|1[012])-[1-9][0-9]{3}$", message = "Period must have format as MM-YYYY!")
+    @Pattern(regexp = PERIOD_REGEXP, message = INVALID_PERIOD_MESSAGE)
     private String period;
-    @Positive(message = "Salary must be greater than zero!")
+    @Positive(message = INVALID_SALARY_MESSAGE)
     private Long salary;
 
     public static PaymentDto toDto(Payment payment){
-        return new PaymentDto(payment.getUser().getUsername(), payment.getPeriod(), payment.getSalary());
+        return new PaymentDto(payment.getUser().getUsername(), Payment.decodePeriod(payment.getPeriod()),
+                payment.getSalary());
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+package account.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * One line of a streamed payroll upload or salary correction response: a rejected row, the progress after a
+ * committed chunk, or the final summary.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PaymentIngestionEventDto {
+
+    public static final String REJECTED = "REJECTED";
+    public static final String PROGRESS = "PROGRESS";
+    public static final String COMPLETED = "COMPLETED";
+
+    private String type;
+    private Long row;
+    private String employee;
+    private String period;
+    private String message;
+    private Long processed;
+    private Long added;
+    private Long updated;
+    private Long rejected;
+
+    public static PaymentIngestionEventDto rejected(long row, String employee, String period, String message) {
+        return new PaymentIngestionEventDto(REJECTED, row, employee, period, message, null, null, null, null);
+    }
+
+    public static PaymentIngestionEventDto progress(long processed, long added, long rejected) {
+        return new PaymentIngestionEventDto(PROGRESS, null, null, null, null, processed, added, null, rejected);
+    }
+
+    public static PaymentIngestionEventDto completed(long processed, long added, long rejected) {
+        return new PaymentIngestionEventDto(COMPLETED, null, null, null, null, processed, added, null, rejected);
+    }
+
+    public static PaymentIngestionEventDto correctionProgress(long processed, long updated, long rejected) {
+        return new PaymentIngestionEventDto(PROGRESS, null, null, null, null, processed, null, updated, rejected);
+    }
+
+    public static PaymentIngestionEventDto correctionCompleted(long processed, long updated, long rejected) {
+        return new PaymentIngestionEventDto(COMPLETED, null, null, null, null, processed, null, updated, rejected);
+    }
+}
@@ -0,0 +1,23 @@
+package account.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * A page of an employee's payment history; {@code nextCursor} is omitted on the last page.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PaymentPageDto {
+
+    private List<PaymentDetailsDto> payments;
+    private String nextCursor;
+}
@@ -0,0 +1,34 @@
+package account.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProvisioningResultDto {
+
+    public static final String CREATED = "CREATED";
+    public static final String REJECTED = "REJECTED";
+
+    private int row;
+    private String email;
+    private String status;
+    private Long id;
+    private String message;
+
+    public static ProvisioningResultDto created(int row, String email, Long id) {
+        return new ProvisioningResultDto(row, email, CREATED, id, null);
+    }
+
+    public static ProvisioningResultDto rejected(int row, String email, String message) {
+        return new ProvisioningResultDto(row, email, REJECTED, null, message);
+    }
+}
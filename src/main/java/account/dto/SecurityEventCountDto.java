@@ -0,0 +1,32 @@
+package account.dto;
+
+import account.repository.SecurityEventRollupRepository.EventCount;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Number of security events in a bucket; dimensions the counts are not broken down by are omitted.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SecurityEventCountDto {
+
+    private LocalDateTime bucket;
+    private String action;
+    private String subject;
+    private String path;
+    private long count;
+
+    public static SecurityEventCountDto toDto(EventCount count) {
+        return new SecurityEventCountDto(count.bucket(), count.action(), count.subject(), count.path(),
+                count.count());
+    }
+}
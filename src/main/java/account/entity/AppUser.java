@@ -1,5 +1,6 @@
 package account.entity;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
@@ -15,6 +16,7 @@ import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 
 @Entity
@@ -29,6 +31,12 @@ public class AppUser implements UserDetails {
 
     private String username;
 
+    /**
+     * Lower-cased {@link #username}, so case-insensitive lookups and the uniqueness check hit a plain unique index.
+     */
+    @Column(unique = true, nullable = false)
+    private String usernameKey;
+
     private String password;
 
     private boolean accountNonExpired;
@@ -39,7 +47,11 @@ public class AppUser implements UserDetails {
 
     private boolean enabled;
 
-    private int failedAttempt;
+    /**
+     * Epoch milliseconds up to which access tokens issued to the user's username are rejected; starts at the
+     * creation of the user, so tokens of a deleted user with the same username stay rejected.
+     */
+    private Long tokensRevokedAt;
 
     @ManyToMany(fetch = FetchType.EAGER)
     @JoinTable(name = "users_roles",
@@ -59,11 +71,13 @@ public class AppUser implements UserDetails {
         this.name = name;
         this.lastName = lastName;
         this.username = email;
+        this.usernameKey = usernameKeyOf(email);
         this.password = password;
         this.accountNonExpired = true;
         this.accountNonLocked = true;
         this.credentialsNonExpired = true;
         this.enabled = true;
+        this.tokensRevokedAt = System.currentTimeMillis();
     }
 
     @Override
@@ -73,6 +87,19 @@ public class AppUser implements UserDetails {
 
     public void setUsername(String username) {
         this.username = username;
+        this.usernameKey = usernameKeyOf(username);
+    }
+
+    public Long getTokensRevokedAt() {
+        return tokensRevokedAt;
+    }
+
+    public String getUsernameKey() {
+        return usernameKey;
+    }
+
+    public static String usernameKeyOf(String username) {
+        return username.toLowerCase(Locale.ROOT);
     }
 
     @Override
@@ -159,12 +186,4 @@ public class AppUser implements UserDetails {
     public void setAccountNonLocked(boolean accountNonLocked) {
         this.accountNonLocked = accountNonLocked;
     }
-
-    public int getFailedAttempt() {
-        return failedAttempt;
-    }
-
-    public void setFailedAttempt(int failedAttempt) {
-        this.failedAttempt = failedAttempt;
-    }
 }
@@ -0,0 +1,30 @@
+package account.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A payroll period whose payments can no longer change, along with the snapshot file they were written to.
+ */
+@Getter
+@Setter
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+public class ClosedPeriod {
+
+    /**
+     * Period encoded as {@code yyyymm}, as in {@link Payment}.
+     */
+    @Id
+    private Integer period;
+    private int payments;
+    private String snapshotFile;
+    private LocalDateTime closedAt;
+}
@@ -6,23 +6,29 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import lombok.Getter;
 import lombok.Setter;
 
 @Setter
 @Getter
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_payment_user_period", columnNames = {"user_id", "period"}))
 public class Payment {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    private String period;
+    /**
+     * Period encoded as {@code yyyymm}, so periods sort chronologically and can be queried by range.
+     */
+    private Integer period;
 
     private Long salary;
 
-    public Payment(String period, Long salary, AppUser user) {
+    public Payment(Integer period, Long salary, AppUser user) {
         this.period = period;
         this.salary = salary;
         this.user = user;
@@ -31,4 +37,26 @@ public class Payment {
     @ManyToOne
     @JoinColumn(name = "user_id", nullable = false)
     private AppUser user;
+
+    /**
+     * Encodes a {@code MM-YYYY} (or {@code M-YYYY}) period as {@code yyyymm}.
+     */
+    public static Integer encodePeriod(String period) {
+        if (period == null) {
+            return null;
+        }
+        int separator = period.indexOf('-');
+        return Integer.parseInt(period.substring(separator + 1)) * 100
+                + Integer.parseInt(period.substring(0, separator));
+    }
+
+    /**
+     * Decodes a {@code yyyymm} period back to the {@code MM-YYYY} format used by the API.
+     */
+    public static String decodePeriod(Integer period) {
+        if (period == null) {
+            return null;
+        }
+        return String.format("%02d-%d", period % 100, period / 100);
+    }
 }
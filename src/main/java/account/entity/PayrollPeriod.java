@@ -0,0 +1,27 @@
+package account.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A payroll period payments have been written to. Writes to a period lock its row until they commit, and closing
+ * the period sets {@link #closed} under the same lock, so no write can slip in between closing and the snapshot.
+ */
+@Getter
+@Setter
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+public class PayrollPeriod {
+
+    /**
+     * Period encoded as {@code yyyymm}, as in {@link Payment}.
+     */
+    @Id
+    private Integer period;
+    private boolean closed;
+}
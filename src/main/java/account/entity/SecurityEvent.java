@@ -4,6 +4,8 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -15,6 +17,12 @@ import java.time.LocalDate;
 @Getter
 @Setter
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_security_event_action_id", columnList = "action, id"),
+        @Index(name = "idx_security_event_subject_id", columnList = "subject, id"),
+        @Index(name = "idx_security_event_path_id", columnList = "path, id"),
+        @Index(name = "idx_security_event_date_id", columnList = "date, id")
+})
 @AllArgsConstructor
 @ToString
 @NoArgsConstructor
@@ -0,0 +1,43 @@
+package account.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Number of security events with the same action, subject and path recorded within one hour. Rows are only
+ * written through {@link account.repository.SecurityEventRollupRepository} and outlive the events they count.
+ */
+@Getter
+@Setter
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_security_event_rollup_key", columnList = "bucket, action, subject, path", unique = true),
+        @Index(name = "idx_security_event_rollup_action", columnList = "action, bucket")
+})
+@AllArgsConstructor
+@NoArgsConstructor
+public class SecurityEventRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Start of the hour the events were recorded in.
+     */
+    private LocalDateTime bucket;
+    private String action;
+    private String subject;
+    private String path;
+    private long events;
+}
@@ -0,0 +1,8 @@
+package account.exception;
+
+public class IdempotencyKeyException extends RuntimeException{
+
+    public IdempotencyKeyException(String msg){
+        super(msg);
+    }
+}
@@ -0,0 +1,8 @@
+package account.exception;
+
+public class InvalidCursorException extends RuntimeException{
+
+    public InvalidCursorException(){
+        super("Invalid cursor!");
+    }
+}
@@ -0,0 +1,8 @@
+package account.exception;
+
+public class TooManySubscribersException extends RuntimeException{
+
+    public TooManySubscribersException(){
+        super("Too many subscribers; please try again later!");
+    }
+}
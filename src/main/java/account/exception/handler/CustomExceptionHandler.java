@@ -1,13 +1,18 @@
 package account.exception.handler;
 
 import account.exception.ApiError;
+import account.exception.IdempotencyKeyException;
+import account.exception.InvalidCursorException;
+import account.exception.TooManySubscribersException;
 import account.exception.password.BreachedPasswordException;
 import account.exception.password.MatchingPasswordException;
+import account.exception.password.PasswordHashingUnavailableException;
 import account.exception.payment.InvalidPaymentException;
 import account.exception.payment.PaymentDoesNotExistException;
 import account.exception.user.InvalidRoleException;
 import account.exception.user.InvalidUserActionException;
 import account.exception.user.RoleNotFoundException;
+import account.exception.user.TooManyLoginAttemptsException;
 import account.exception.user.UserExistException;
 import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
@@ -57,7 +62,8 @@ public class CustomExceptionHandler extends ResponseEntityExceptionHandler {
             InvalidPaymentException.class,
             PaymentDoesNotExistException.class,
             InvalidUserActionException.class,
-            InvalidRoleException.class
+            InvalidRoleException.class,
+            InvalidCursorException.class
     })
     protected ResponseEntity<Object> handleBusinessExceptions(RuntimeException ex, WebRequest request) {
         HttpStatus status = HttpStatus.BAD_REQUEST;
@@ -99,6 +105,34 @@ public class CustomExceptionHandler extends ResponseEntityExceptionHandler {
                 request.getDescription(false)));
     }
 
+    @ExceptionHandler(PasswordHashingUnavailableException.class)
+    @ResponseBody
+    public ResponseEntity<Object> handlePasswordHashingUnavailableException(RuntimeException ex, WebRequest request) {
+        return buildResponseEntity(new ApiError(HttpStatus.SERVICE_UNAVAILABLE, Optional.of(ex.getMessage()),
+                request.getDescription(false)));
+    }
+
+    @ExceptionHandler(TooManySubscribersException.class)
+    @ResponseBody
+    public ResponseEntity<Object> handleTooManySubscribersException(RuntimeException ex, WebRequest request) {
+        return buildResponseEntity(new ApiError(HttpStatus.SERVICE_UNAVAILABLE, Optional.of(ex.getMessage()),
+                request.getDescription(false)));
+    }
+
+    @ExceptionHandler(TooManyLoginAttemptsException.class)
+    @ResponseBody
+    public ResponseEntity<Object> handleTooManyLoginAttemptsException(RuntimeException ex, WebRequest request) {
+        return buildResponseEntity(new ApiError(HttpStatus.TOO_MANY_REQUESTS, Optional.of(ex.getMessage()),
+                request.getDescription(false)));
+    }
+
+    @ExceptionHandler(IdempotencyKeyException.class)
+    @ResponseBody
+    public ResponseEntity<Object> handleIdempotencyKeyException(RuntimeException ex, WebRequest request) {
+        return buildResponseEntity(new ApiError(HttpStatus.UNPROCESSABLE_ENTITY, Optional.of(ex.getMessage()),
+                request.getDescription(false)));
+    }
+
     @ExceptionHandler(RoleNotFoundException.class)
     @ResponseBody
     public ResponseEntity<Object> handleRoleNotFoundException(RuntimeException ex, WebRequest request) {
@@ -0,0 +1,9 @@
+package account.exception.password;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+public class PasswordHashingUnavailableException extends AuthenticationServiceException {
+    public PasswordHashingUnavailableException(){
+        super("Service is busy; please try again later");
+    }
+}
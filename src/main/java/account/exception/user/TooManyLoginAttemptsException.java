@@ -0,0 +1,8 @@
+package account.exception.user;
+
+public class TooManyLoginAttemptsException extends RuntimeException{
+
+    public TooManyLoginAttemptsException(){
+        super("Too many failed login attempts; please try again later");
+    }
+}
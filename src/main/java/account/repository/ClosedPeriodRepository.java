@@ -0,0 +1,9 @@
+package account.repository;
+
+import account.entity.ClosedPeriod;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ClosedPeriodRepository extends JpaRepository<ClosedPeriod, Integer> {
+}
@@ -0,0 +1,176 @@
+package account.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static account.repository.UserBatchRepository.MAX_IN_LIST_SIZE;
+
+/**
+ * Set-based reads, JDBC batch inserts and cursor reads for payment uploads and exports, and the payroll period locks
+ * taken by payment writes. Like users, payments use {@code IDENTITY} ids, so Hibernate would insert them one
+ * statement at a time.
+ */
+@Repository
+public class PaymentBatchRepository {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    public PaymentBatchRepository(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+    }
+
+    /**
+     * Finds which of the given users already have payments for any of the given periods, using the
+     * {@code (user_id, period)} unique index. Every combination of the users and periods is looked up, so callers
+     * checking specific pairs must only consider the pairs they are interested in.
+     *
+     * @return existing pairs, as built by {@link #userPeriodKey(Long, Integer)}
+     */
+    public Set<String> findExistingUserPeriods(Collection<Long> userIds, Collection<Integer> periods) {
+        Set<String> existing = new HashSet<>();
+        List<Long> ids = List.copyOf(userIds);
+        for (int start = 0; start < ids.size(); start += MAX_IN_LIST_SIZE) {
+            MapSqlParameterSource parameters = new MapSqlParameterSource()
+                    .addValue("userIds", ids.subList(start, Math.min(start + MAX_IN_LIST_SIZE, ids.size())))
+                    .addValue("periods", periods);
+            namedParameterJdbcTemplate.query("select user_id, period from payment " +
+                            "where user_id in (:userIds) and period in (:periods)", parameters,
+                    resultSet -> {
+                        existing.add(userPeriodKey(resultSet.getLong("user_id"), resultSet.getInt("period")));
+                    });
+        }
+        return existing;
+    }
+
+    /**
+     * Inserts the payments in JDBC batches; ids are not read back.
+     */
+    public void insertPayments(List<UserPayment> payments) {
+        jdbcTemplate.batchUpdate("insert into payment (period, salary, user_id) values (?, ?, ?)",
+                payments, BATCH_SIZE, (statement, payment) -> {
+                    statement.setObject(1, payment.period(), Types.INTEGER);
+                    statement.setObject(2, payment.salary(), Types.BIGINT);
+                    statement.setLong(3, payment.userId());
+                });
+    }
+
+    /**
+     * Sets the salary of existing payments, matched by {@code (user_id, period)}, in JDBC batches.
+     *
+     * @return number of payments updated by each correction, in order
+     */
+    public int[] updateSalaries(List<UserPayment> corrections) {
+        int[][] batchCounts = jdbcTemplate.batchUpdate("update payment set salary = ? " +
+                        "where user_id = ? and period = ?",
+                corrections, BATCH_SIZE, (statement, correction) -> {
+                    statement.setObject(1, correction.salary(), Types.BIGINT);
+                    statement.setLong(2, correction.userId());
+                    statement.setObject(3, correction.period(), Types.INTEGER);
+                });
+        return Arrays.stream(batchCounts).flatMapToInt(Arrays::stream).toArray();
+    }
+
+    /**
+     * Reads the payments with periods in {@code [fromPeriod, toPeriod]}, in id order, through a forward-only and
+     * read-only cursor, so rows are fetched {@code fetchSize} at a time rather than loaded as a whole.
+     */
+    public void forEachPayment(int fromPeriod, int toPeriod, int fetchSize, Consumer<ExportedPayment> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement("select u.username, p.period, p.salary " +
+                            "from payment p join app_user u on u.id = p.user_id " +
+                            "where p.period between ? and ? order by p.id",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            statement.setInt(1, fromPeriod);
+            statement.setInt(2, toPeriod);
+            return statement;
+        }, (RowCallbackHandler) resultSet -> consumer.accept(new ExportedPayment(resultSet.getString("username"),
+                resultSet.getInt("period"), resultSet.getObject("salary", Long.class))));
+    }
+
+    /**
+     * Reads every payment of a period along with the employee it belongs to.
+     */
+    public List<PeriodPayment> findPeriodPayments(int period) {
+        return jdbcTemplate.query("select u.id, u.username_key, u.name, u.last_name, p.salary " +
+                        "from payment p join app_user u on u.id = p.user_id where p.period = ?",
+                (resultSet, rowNum) -> new PeriodPayment(resultSet.getLong("id"),
+                        resultSet.getString("username_key"), resultSet.getString("name"),
+                        resultSet.getString("last_name"), resultSet.getObject("salary", Long.class)),
+                period);
+    }
+
+    /**
+     * @return which of the given periods have a {@code payroll_period} row
+     */
+    public Set<Integer> findRegisteredPeriods(Collection<Integer> periods) {
+        return new HashSet<>(namedParameterJdbcTemplate.queryForList("select period from payroll_period " +
+                "where period in (:periods)", new MapSqlParameterSource("periods", periods), Integer.class));
+    }
+
+    /**
+     * Adds an open {@code payroll_period} row, unless one was added concurrently.
+     */
+    public void registerPeriod(int period) {
+        try {
+            jdbcTemplate.update("insert into payroll_period (period, closed) values (?, false)", period);
+        } catch (DuplicateKeyException ex) {
+            // registered by a concurrent write
+        }
+    }
+
+    /**
+     * Locks the {@code payroll_period} rows of the given periods, in period order, until the current transaction
+     * ends.
+     *
+     * @return which of them are closed
+     */
+    public Set<Integer> lockPeriods(Collection<Integer> periods) {
+        Set<Integer> closed = new HashSet<>();
+        namedParameterJdbcTemplate.query("select period, closed from payroll_period where period in (:periods) " +
+                        "order by period for update", new MapSqlParameterSource("periods", periods),
+                resultSet -> {
+                    if (resultSet.getBoolean("closed")) {
+                        closed.add(resultSet.getInt("period"));
+                    }
+                });
+        return closed;
+    }
+
+    public void markPeriodClosed(int period) {
+        jdbcTemplate.update("update payroll_period set closed = true where period = ?", period);
+    }
+
+    public static String userPeriodKey(Long userId, Integer period) {
+        return userId + "|" + period;
+    }
+
+    public record UserPayment(Long userId, Integer period, Long salary) {
+    }
+
+    public record PeriodPayment(Long userId, String usernameKey, String name, String lastName, Long salary) {
+    }
+
+    public record ExportedPayment(String employee, Integer period, Long salary) {
+    }
+}
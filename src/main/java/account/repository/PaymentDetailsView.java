@@ -0,0 +1,8 @@
+package account.repository;
+
+/**
+ * The columns a payslip row is rendered from, selected straight from {@code payment} joined with {@code app_user}
+ * so that listing payments loads neither the user entities nor their roles.
+ */
+public record PaymentDetailsView(String name, String lastName, Integer period, Long salary) {
+}
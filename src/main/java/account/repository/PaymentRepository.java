@@ -1,7 +1,11 @@
 package account.repository;
 
+import account.entity.AppUser;
 import account.entity.Payment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,10 +14,44 @@ import java.util.Optional;
 @Repository
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
 
+    String DETAILS_QUERY = "select new account.repository.PaymentDetailsView(u.name, u.lastName, p.period, " +
+            "p.salary) from Payment p join p.user u where u.usernameKey = :usernameKey";
+
     @Override
     Optional<Payment> findById(Long aLong);
 
-    Optional<Payment> findByUserUsernameIgnoreCaseAndPeriod(String username, String period);
+    Optional<Payment> findByUserUsernameKeyAndPeriod(String usernameKey, Integer period);
+
+    default Optional<Payment> findByUserUsernameIgnoreCaseAndPeriod(String username, Integer period) {
+        return findByUserUsernameKeyAndPeriod(AppUser.usernameKeyOf(username), period);
+    }
+
+    /**
+     * Payment details of a user, newest first, in a single statement.
+     */
+    @Query(DETAILS_QUERY + " order by p.period desc")
+    List<PaymentDetailsView> findDetailsByUsernameKey(@Param("usernameKey") String usernameKey);
+
+    @Query(DETAILS_QUERY + " and p.period = :period")
+    Optional<PaymentDetailsView> findDetailsByUsernameKeyAndPeriod(@Param("usernameKey") String usernameKey,
+                                                                   @Param("period") Integer period);
+
+    /**
+     * Payment details of a user between two {@code yyyymm} periods, both inclusive, newest first; answered by a
+     * scan of the {@code (user_id, period)} index.
+     */
+    @Query(DETAILS_QUERY + " and p.period between :from and :to order by p.period desc")
+    List<PaymentDetailsView> findDetailsByUsernameKeyAndPeriodBetween(@Param("usernameKey") String usernameKey,
+                                                                      @Param("from") Integer from,
+                                                                      @Param("to") Integer to);
 
-    List<Payment> findByUserUsernameIgnoreCase(String username);
+    /**
+     * Same as above, limited to the page size of the given (first page) {@link Pageable}; keyset pagination moves
+     * {@code to} below the last period returned instead of using an offset.
+     */
+    @Query(DETAILS_QUERY + " and p.period between :from and :to order by p.period desc")
+    List<PaymentDetailsView> findDetailsByUsernameKeyAndPeriodBetween(@Param("usernameKey") String usernameKey,
+                                                                      @Param("from") Integer from,
+                                                                      @Param("to") Integer to,
+                                                                      Pageable pageable);
 }
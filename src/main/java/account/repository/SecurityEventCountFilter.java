@@ -0,0 +1,22 @@
+package account.repository;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Criteria of a security event count query; {@code null} criteria are not applied.
+ *
+ * @param granularity width of the buckets counts are summed over
+ * @param groupBy     dimensions counts are broken down by, on top of the bucket
+ */
+public record SecurityEventCountFilter(Granularity granularity, Set<Dimension> groupBy, String action, String subject,
+                                       String path, LocalDate from, LocalDate to) {
+
+    public enum Granularity {
+        HOUR, DAY
+    }
+
+    public enum Dimension {
+        ACTION, SUBJECT, PATH
+    }
+}
@@ -0,0 +1,9 @@
+package account.repository;
+
+import java.time.LocalDate;
+
+/**
+ * Criteria security events are listed by; {@code null} criteria match every event, dates are inclusive.
+ */
+public record SecurityEventFilter(String action, String subject, String path, LocalDate from, LocalDate to) {
+}
@@ -0,0 +1,86 @@
+package account.repository;
+
+import account.entity.SecurityEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keyset paged reads and batched deletes of security events.
+ * <p>
+ * The statement only carries the criteria that are set, so each query can be answered from one of the
+ * {@code (action, id)}, {@code (subject, id)}, {@code (path, id)} or {@code (date, id)} indexes, and continues
+ * below the last id returned instead of skipping rows, keeping every page a bounded index scan.
+ */
+@Repository
+public class SecurityEventQueryRepository {
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    public SecurityEventQueryRepository(NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+    }
+
+    /**
+     * Events matching {@code filter}, newest first.
+     *
+     * @param beforeId only events with a lower id are returned, if set
+     */
+    public List<SecurityEvent> findPage(SecurityEventFilter filter, Long beforeId, int limit) {
+        List<String> conditions = new ArrayList<>();
+        MapSqlParameterSource parameters = new MapSqlParameterSource("limit", limit);
+        addCondition(conditions, parameters, "action = :action", "action", filter.action());
+        addCondition(conditions, parameters, "subject = :subject", "subject", filter.subject());
+        addCondition(conditions, parameters, "path = :path", "path", filter.path());
+        addCondition(conditions, parameters, "date >= :from", "from", filter.from());
+        addCondition(conditions, parameters, "date <= :to", "to", filter.to());
+        addCondition(conditions, parameters, "id < :beforeId", "beforeId", beforeId);
+
+        String where = conditions.isEmpty() ? "" : " where " + String.join(" and ", conditions);
+        return namedParameterJdbcTemplate.query("select id, date, action, subject, object, path " +
+                        "from security_event" + where + " order by id desc limit :limit", parameters,
+                this::toSecurityEvent);
+    }
+
+    /**
+     * Events with ids above {@code afterId}, oldest first.
+     */
+    public List<SecurityEvent> findAfter(long afterId, int limit) {
+        return namedParameterJdbcTemplate.query("select id, date, action, subject, object, path " +
+                        "from security_event where id > :afterId order by id limit :limit",
+                new MapSqlParameterSource("afterId", afterId).addValue("limit", limit), this::toSecurityEvent);
+    }
+
+    /**
+     * Deletes up to {@code limit} of the oldest events dated before {@code date}.
+     *
+     * @return number of events deleted
+     */
+    public int deleteDatedBefore(LocalDate date, int limit) {
+        return namedParameterJdbcTemplate.update("delete from security_event where id in (select id " +
+                        "from security_event where date < :date order by id limit :limit)",
+                new MapSqlParameterSource("date", date).addValue("limit", limit));
+    }
+
+    private SecurityEvent toSecurityEvent(ResultSet resultSet, int rowNum) throws SQLException {
+        return new SecurityEvent(resultSet.getLong("id"), resultSet.getObject("date", LocalDate.class),
+                resultSet.getString("action"), resultSet.getString("subject"), resultSet.getString("object"),
+                resultSet.getString("path"));
+    }
+
+    private static void addCondition(List<String> conditions, MapSqlParameterSource parameters, String condition,
+                                     String name, Object value) {
+        if (value != null) {
+            conditions.add(condition);
+            parameters.addValue(name, value);
+        }
+    }
+}
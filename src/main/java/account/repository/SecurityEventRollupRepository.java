@@ -0,0 +1,107 @@
+package account.repository;
+
+import account.repository.SecurityEventCountFilter.Dimension;
+import account.repository.SecurityEventCountFilter.Granularity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hourly security event counts. Counts are added to with batched {@code merge} statements, so a flush costs one
+ * round trip however many buckets it touches, and queries only ever read the rollup table.
+ */
+@Repository
+public class SecurityEventRollupRepository {
+
+    public record RollupKey(LocalDateTime bucket, String action, String subject, String path) {
+    }
+
+    public record EventCount(LocalDateTime bucket, String action, String subject, String path, long count) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    public SecurityEventRollupRepository(JdbcTemplate jdbcTemplate,
+                                         NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+    }
+
+    /**
+     * Adds the counts to their buckets, creating the buckets missing.
+     */
+    public void addCounts(Map<RollupKey, Long> counts) {
+        List<Map.Entry<RollupKey, Long>> entries = List.copyOf(counts.entrySet());
+        jdbcTemplate.batchUpdate("merge into security_event_rollup r " +
+                        "using (values (cast(? as timestamp), cast(? as varchar), cast(? as varchar), " +
+                        "cast(? as varchar), cast(? as bigint))) s (bucket, action, subject, path, events) " +
+                        "on r.bucket = s.bucket and r.action is not distinct from s.action " +
+                        "and r.subject is not distinct from s.subject and r.path is not distinct from s.path " +
+                        "when matched then update set events = r.events + s.events " +
+                        "when not matched then insert (bucket, action, subject, path, events) " +
+                        "values (s.bucket, s.action, s.subject, s.path, s.events)",
+                entries, entries.size(), (statement, entry) -> {
+                    RollupKey key = entry.getKey();
+                    statement.setTimestamp(1, Timestamp.valueOf(key.bucket()));
+                    statement.setString(2, key.action());
+                    statement.setString(3, key.subject());
+                    statement.setString(4, key.path());
+                    statement.setLong(5, entry.getValue());
+                });
+    }
+
+    /**
+     * Counts matching {@code filter}, summed per bucket and the requested dimensions, oldest bucket first and
+     * highest count first within a bucket.
+     */
+    public List<EventCount> findCounts(SecurityEventCountFilter filter, int limit) {
+        String bucket = filter.granularity() == Granularity.DAY ? "date_trunc('DAY', bucket)" : "bucket";
+        List<String> columns = new ArrayList<>(List.of(bucket + " as bucket"));
+        List<String> groupBy = new ArrayList<>(List.of(bucket));
+        for (Dimension dimension : Dimension.values()) {
+            String column = dimension.name().toLowerCase();
+            if (filter.groupBy().contains(dimension)) {
+                columns.add(column);
+                groupBy.add(column);
+            } else {
+                columns.add("null as " + column);
+            }
+        }
+
+        List<String> conditions = new ArrayList<>();
+        MapSqlParameterSource parameters = new MapSqlParameterSource("limit", limit);
+        addCondition(conditions, parameters, "action = :action", "action", filter.action());
+        addCondition(conditions, parameters, "subject = :subject", "subject", filter.subject());
+        addCondition(conditions, parameters, "path = :path", "path", filter.path());
+        addCondition(conditions, parameters, "bucket >= :from", "from",
+                filter.from() == null ? null : filter.from().atStartOfDay());
+        addCondition(conditions, parameters, "bucket < :to", "to",
+                filter.to() == null ? null : filter.to().plusDays(1).atStartOfDay());
+
+        String where = conditions.isEmpty() ? "" : " where " + String.join(" and ", conditions);
+        return namedParameterJdbcTemplate.query("select " + String.join(", ", columns) + ", sum(events) as total " +
+                        "from security_event_rollup" + where + " group by " + String.join(", ", groupBy) +
+                        " order by 1, total desc limit :limit", parameters,
+                (resultSet, rowNum) -> new EventCount(resultSet.getObject("bucket", LocalDateTime.class),
+                        resultSet.getString("action"), resultSet.getString("subject"), resultSet.getString("path"),
+                        resultSet.getLong("total")));
+    }
+
+    private static void addCondition(List<String> conditions, MapSqlParameterSource parameters, String condition,
+                                     String name, Object value) {
+        if (value != null) {
+            conditions.add(condition);
+            parameters.addValue(name, value);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package account.repository;
+
+import account.entity.AppUser;
+import account.entity.SecurityEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plain JDBC batch inserts for bulk provisioning. Hibernate cannot batch inserts of entities with
+ * {@code IDENTITY} ids, so users, their role links and the matching security events are written here with one
+ * batched statement each; generated user ids are read back by the unique username key.
+ */
+@Repository
+public class UserBatchRepository {
+
+    static final int MAX_IN_LIST_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    public UserBatchRepository(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+    }
+
+    /**
+     * Inserts the users and links each of them to the given role.
+     *
+     * @return generated user ids by username key
+     */
+    public Map<String, Long> insertUsers(List<AppUser> users, Long roleId) {
+        jdbcTemplate.batchUpdate("insert into app_user (name, last_name, username, username_key, password, " +
+                        "account_non_expired, account_non_locked, credentials_non_expired, enabled, " +
+                        "tokens_revoked_at) values (?, ?, ?, ?, ?, true, true, true, true, ?)",
+                users, users.size(), (statement, user) -> {
+                    statement.setString(1, user.getName());
+                    statement.setString(2, user.getLastName());
+                    statement.setString(3, user.getUsername());
+                    statement.setString(4, user.getUsernameKey());
+                    statement.setString(5, user.getPassword());
+                    statement.setLong(6, user.getTokensRevokedAt());
+                });
+
+        Map<String, Long> ids = findIdsByUsernameKeys(users.stream().map(AppUser::getUsernameKey).toList());
+
+        jdbcTemplate.batchUpdate("insert into users_roles (user_id, role_id) values (?, ?)",
+                users, users.size(), (statement, user) -> {
+                    statement.setLong(1, ids.get(user.getUsernameKey()));
+                    statement.setLong(2, roleId);
+                });
+
+        return ids;
+    }
+
+    /**
+     * Inserts the events in one batch and sets the ids generated for them.
+     */
+    public void insertSecurityEvents(List<SecurityEvent> securityEvents) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("insert into security_event " +
+                    "(date, action, subject, object, path) values (?, ?, ?, ?, ?)", new String[]{"id"})) {
+                for (SecurityEvent event : securityEvents) {
+                    statement.setDate(1, Date.valueOf(event.getDate()));
+                    statement.setString(2, event.getAction());
+                    statement.setString(3, event.getSubject());
+                    statement.setString(4, event.getObject());
+                    statement.setString(5, event.getPath());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+
+                try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+                    for (int i = 0; i < securityEvents.size() && generatedKeys.next(); i++) {
+                        securityEvents.get(i).setId(generatedKeys.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Resolves user ids by username key, querying in slices so the {@code in} list stays bounded.
+     *
+     * @return ids of the users that exist, by username key
+     */
+    public Map<String, Long> findIdsByUsernameKeys(Collection<String> usernameKeys) {
+        Map<String, Long> ids = new HashMap<>();
+        List<String> keys = List.copyOf(usernameKeys);
+        for (int start = 0; start < keys.size(); start += MAX_IN_LIST_SIZE) {
+            List<String> slice = keys.subList(start, Math.min(start + MAX_IN_LIST_SIZE, keys.size()));
+            namedParameterJdbcTemplate.query("select id, username_key from app_user where username_key in (:keys)",
+                    new MapSqlParameterSource("keys", slice),
+                    resultSet -> {
+                        ids.put(resultSet.getString("username_key"), resultSet.getLong("id"));
+                    });
+        }
+        return ids;
+    }
+}
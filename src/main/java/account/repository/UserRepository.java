@@ -4,16 +4,47 @@ import account.entity.AppUser;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<AppUser, Long> {
 
-    Optional<AppUser> findByUsernameIgnoreCase(String username);
+    Optional<AppUser> findByUsernameKey(String usernameKey);
 
-    List<AppUser> findAllByUsernameIgnoreCase(String username);
+    default Optional<AppUser> findByUsernameIgnoreCase(String username) {
+        return findByUsernameKey(AppUser.usernameKeyOf(username));
+    }
+
+    boolean existsByUsernameKey(String usernameKey);
+
+    @Query("select u.usernameKey from AppUser u where u.usernameKey in :usernameKeys")
+    List<String> findExistingUsernameKeys(@Param("usernameKeys") Collection<String> usernameKeys);
+
+    /**
+     * Whether any user exists at all; unlike {@code count()} this stops at the first row.
+     */
+    boolean existsByIdNotNull();
+
+    /**
+     * @return epoch milliseconds up to which the user's access tokens are revoked, {@code 0} if never
+     */
+    @Query("select coalesce(u.tokensRevokedAt, 0) from AppUser u where u.usernameKey = :usernameKey")
+    Optional<Long> findTokensRevokedAt(@Param("usernameKey") String usernameKey);
+
+    @Transactional
+    @Modifying
+    @Query("update AppUser u set u.tokensRevokedAt = :revokedAt where u.usernameKey = :usernameKey")
+    int revokeTokens(@Param("usernameKey") String usernameKey, @Param("revokedAt") long revokedAt);
+
+    @Transactional
+    @Modifying
+    @Query("update AppUser u set u.accountNonLocked = false where u.id = :id and u.accountNonLocked = true")
+    int lockUser(@Param("id") Long id);
 
 }
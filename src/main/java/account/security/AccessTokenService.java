@@ -0,0 +1,200 @@
+package account.security;
+
+import account.dto.AccessTokenDto;
+import account.entity.AppUser;
+import account.entity.Role;
+import account.repository.UserRepository;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+
+/**
+ * Issues and verifies short-lived, HMAC signed access tokens carrying the username and its roles.
+ * Tokens issued before a user has been locked, deleted or had its roles or password changed are rejected
+ * through {@link #revoke(String)}, which stores the revocation time on the user so that it survives restarts and
+ * applies on every node sharing the secret. Revocation times are cached for {@code revocation-check-interval};
+ * revocations made on another node take effect here within that interval.
+ */
+@Slf4j
+@Service
+public class AccessTokenService {
+
+    public static final String TOKEN_TYPE = "Bearer";
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final String VERSION = "v1";
+    private static final String FIELD_SEPARATOR = "|";
+    private static final String ROLE_SEPARATOR = ",";
+
+    private final Duration ttl;
+    private final ThreadLocal<Mac> macs;
+    private final UserRepository userRepository;
+    private final Cache<String, Long> revokedBefore;
+    private final Clock clock = Clock.systemUTC();
+
+    @Autowired
+    public AccessTokenService(UserRepository userRepository, MeterRegistry meterRegistry,
+                              @Value("${account.security.token.ttl:PT15M}") Duration ttl,
+                              @Value("${account.security.token.secret:}") String secret,
+                              @Value("${account.security.token.revocation-check-interval:PT5S}")
+                              Duration revocationCheckInterval,
+                              @Value("${account.security.token.revocation-cache.max-size:10000}") long maxSize) {
+        this.userRepository = userRepository;
+        this.ttl = ttl;
+        this.revokedBefore = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(revocationCheckInterval)
+                .recordStats()
+                .build();
+        GuavaCacheMetrics.monitor(meterRegistry, revokedBefore, "token-revocations");
+        SecretKeySpec key = new SecretKeySpec(signingKey(secret), HMAC_ALGORITHM);
+        this.macs = ThreadLocal.withInitial(() -> newMac(key));
+    }
+
+    public AccessTokenDto issueToken(AppUser user) {
+        long issuedAt = clock.millis();
+        long expiresAt = issuedAt + ttl.toMillis();
+        String roles = user.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.joining(ROLE_SEPARATOR));
+
+        String payload = String.join(FIELD_SEPARATOR, VERSION, normalize(user.getUsername()),
+                Long.toString(issuedAt), Long.toString(expiresAt), roles);
+
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String token = encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + "." +
+                encoder.encodeToString(sign(payload));
+
+        log.info("Issued access token for user {} valid until {}", normalize(user.getUsername()), expiresAt);
+        return new AccessTokenDto(token, TOKEN_TYPE, ttl.toSeconds());
+    }
+
+    /**
+     * Verifies signature, expiration and revocation of the given token and returns a detached principal
+     * built from its claims; no password hashing is involved, and the database is only read for the user's
+     * revocation time when it is not cached.
+     */
+    public AppUser authenticate(String token) {
+        int separator = token.indexOf('.');
+        if (separator <= 0) {
+            throw new BadCredentialsException("Invalid access token");
+        }
+
+        String payload;
+        byte[] signature;
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            payload = new String(decoder.decode(token.substring(0, separator)), StandardCharsets.UTF_8);
+            signature = decoder.decode(token.substring(separator + 1));
+        } catch (IllegalArgumentException ex) {
+            throw new BadCredentialsException("Invalid access token");
+        }
+
+        if (!MessageDigest.isEqual(sign(payload), signature)) {
+            throw new BadCredentialsException("Invalid access token");
+        }
+
+        String[] claims = payload.split("\\" + FIELD_SEPARATOR, -1);
+        if (claims.length != 5 || !VERSION.equals(claims[0])) {
+            throw new BadCredentialsException("Invalid access token");
+        }
+
+        String username = claims[1];
+        long issuedAt = Long.parseLong(claims[2]);
+        long expiresAt = Long.parseLong(claims[3]);
+
+        if (clock.millis() >= expiresAt) {
+            throw new BadCredentialsException("Access token has expired");
+        }
+
+        if (issuedAt <= revokedBefore(username)) {
+            log.debug("Rejecting revoked access token of user {}", username);
+            throw new BadCredentialsException("Access token has been revoked");
+        }
+
+        AppUser principal = new AppUser(null, null, username, null);
+        principal.setRoles(new ArrayList<>());
+        if (!claims[4].isEmpty()) {
+            for (String role : claims[4].split(ROLE_SEPARATOR)) {
+                principal.grantAuthority(new Role(role));
+            }
+        }
+        return principal;
+    }
+
+    /**
+     * Rejects every token issued to the given user up to now.
+     */
+    public void revoke(String username) {
+        long now = clock.millis();
+        String usernameKey = normalize(username);
+        userRepository.revokeTokens(usernameKey, now);
+        revokedBefore.put(usernameKey, now);
+        log.debug("Revoked access tokens of user {}", usernameKey);
+    }
+
+    /**
+     * @return epoch milliseconds up to which tokens of the user are rejected; all of them for users that no
+     * longer exist
+     */
+    private long revokedBefore(String usernameKey) {
+        try {
+            return revokedBefore.get(usernameKey, () -> userRepository.findTokensRevokedAt(usernameKey)
+                    .orElse(Long.MAX_VALUE));
+        } catch (ExecutionException | UncheckedExecutionException ex) {
+            log.error("Not possible to read token revocation of user {}", usernameKey, ex.getCause());
+            throw new BadCredentialsException("Access token could not be verified");
+        }
+    }
+
+    private byte[] sign(String payload) {
+        return macs.get().doFinal(payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] signingKey(String secret) {
+        if (secret == null || secret.isBlank()) {
+            log.warn("No account.security.token.secret configured; using a random key, tokens will neither " +
+                    "survive a restart nor be accepted by other nodes");
+            byte[] key = new byte[32];
+            new SecureRandom().nextBytes(key);
+            return key;
+        }
+        return Base64.getDecoder().decode(secret);
+    }
+
+    private static String normalize(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    private static Mac newMac(SecretKeySpec key) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("Not possible to initialize access token HMAC", ex);
+        }
+    }
+}
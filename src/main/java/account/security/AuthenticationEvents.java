@@ -9,7 +9,7 @@ import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.authentication.event.AbstractAuthenticationFailureEvent;
 import org.springframework.security.authentication.event.AuthenticationSuccessEvent;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
 import org.springframework.stereotype.Component;
 
 @Slf4j
@@ -17,10 +17,12 @@ import org.springframework.stereotype.Component;
 public class AuthenticationEvents {
 
     private final UserService userService;
+    private final LoginThrottle loginThrottle;
 
     @Autowired
-    public AuthenticationEvents(UserService userService){
+    public AuthenticationEvents(UserService userService, LoginThrottle loginThrottle){
         this.userService = userService;
+        this.loginThrottle = loginThrottle;
     }
 
     @EventListener
@@ -33,7 +35,12 @@ public class AuthenticationEvents {
     @EventListener
     public void onFailure(AbstractAuthenticationFailureEvent failures) {
         if(failures.getException() instanceof BadCredentialsException){
-            String failedUsername = (String) ((UsernamePasswordAuthenticationToken)failures.getSource()).getPrincipal();
+            UsernamePasswordAuthenticationToken token = (UsernamePasswordAuthenticationToken) failures.getSource();
+            String failedUsername = (String) token.getPrincipal();
+            String remoteAddress = token.getDetails() instanceof WebAuthenticationDetails details ?
+                    details.getRemoteAddress() : null;
+
+            loginThrottle.recordFailure(remoteAddress, failedUsername);
             userService.handleFailedLogin(failedUsername);
         }
     }
@@ -0,0 +1,123 @@
+package account.security;
+
+import account.exception.password.PasswordHashingUnavailableException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * {@link PasswordEncoder} running the hashing and verification of its delegate on a dedicated, bounded pool
+ * instead of on request threads. When the pool queue is full, or a task waits longer than the configured
+ * maximum, callers fail fast with {@link PasswordHashingUnavailableException} instead of piling up.
+ * <p>
+ * A caller giving up cancels its task, which removes a queued task from the queue, but BCrypt does not check for
+ * interruption, so a hash already running keeps its thread until it completes. At most one hash per pool thread is
+ * wasted that way; {@link PasswordEncoderConfig} caps the queue to what the pool can hash within the maximum wait, so
+ * that queued tasks are not all bound to run after their callers left.
+ */
+@Slf4j
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final Duration maxWait;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, ThreadPoolExecutor executor, Duration maxWait) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.maxWait = maxWait;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return execute(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return execute(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * Hashes a batch of passwords on the pool, keeping at most one task per pool thread in flight so a bulk
+     * import uses every core without taking the queue slots interactive signups and logins rely on.
+     */
+    public List<String> encodeAll(List<? extends CharSequence> rawPasswords) {
+        int window = executor.getMaximumPoolSize();
+        List<String> encoded = new ArrayList<>(rawPasswords.size());
+
+        for (int start = 0; start < rawPasswords.size(); start += window) {
+            int end = Math.min(start + window, rawPasswords.size());
+            List<Future<String>> futures = new ArrayList<>(end - start);
+            for (CharSequence rawPassword : rawPasswords.subList(start, end)) {
+                futures.add(submit(() -> delegate.encode(rawPassword)));
+            }
+            for (Future<String> future : futures) {
+                encoded.add(await(future));
+            }
+        }
+        return encoded;
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> T execute(Callable<T> task) {
+        return await(submit(task));
+    }
+
+    private <T> Future<T> submit(Callable<T> task) {
+        try {
+            return executor.submit(task);
+        } catch (RejectedExecutionException ex) {
+            log.warn("Password hashing pool saturated [active={}, queued={}]", executor.getActiveCount(),
+                    executor.getQueue().size());
+            throw new PasswordHashingUnavailableException();
+        }
+    }
+
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            cancel(future);
+            log.warn("Password hashing did not complete within {}", maxWait);
+            throw new PasswordHashingUnavailableException();
+        } catch (InterruptedException ex) {
+            cancel(future);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingUnavailableException();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    /**
+     * Frees the queue slot of a task not started yet; a running hash is not interrupted and finishes anyway.
+     */
+    private void cancel(Future<?> future) {
+        future.cancel(false);
+        if (future instanceof Runnable task) {
+            executor.remove(task);
+        }
+    }
+}
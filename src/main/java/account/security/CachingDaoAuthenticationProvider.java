@@ -0,0 +1,33 @@
+package account.security;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * {@link DaoAuthenticationProvider} that skips the password encoder for credentials recently verified and kept
+ * in the {@link CredentialCache}. Account status checks still run against the loaded user on every request.
+ */
+public class CachingDaoAuthenticationProvider extends DaoAuthenticationProvider {
+
+    private final CredentialCache credentialCache;
+
+    public CachingDaoAuthenticationProvider(CredentialCache credentialCache) {
+        this.credentialCache = credentialCache;
+    }
+
+    @Override
+    protected void additionalAuthenticationChecks(UserDetails userDetails,
+                                                  UsernamePasswordAuthenticationToken authentication)
+            throws AuthenticationException {
+
+        Object credentials = authentication.getCredentials();
+        if (credentials != null && credentialCache.isVerified(userDetails, credentials.toString())) {
+            return;
+        }
+
+        super.additionalAuthenticationChecks(userDetails, authentication);
+        credentialCache.markVerified(userDetails, credentials.toString());
+    }
+}
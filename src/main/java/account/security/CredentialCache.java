@@ -0,0 +1,99 @@
+package account.security;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * Bounded, time limited cache of credentials that already passed a BCrypt check.
+ * Entries are keyed by an HMAC of username, stored hash and presented password, using a key generated at
+ * startup, so neither plaintext passwords nor reusable digests are ever kept in memory.
+ */
+@Slf4j
+@Component
+public class CredentialCache {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final boolean enabled;
+    private final Cache<String, String> verifiedCredentials;
+    private final ThreadLocal<Mac> macs;
+
+    @Autowired
+    public CredentialCache(@Value("${account.security.credential-cache.enabled:true}") boolean enabled,
+                           @Value("${account.security.credential-cache.max-size:10000}") long maxSize,
+                           @Value("${account.security.credential-cache.ttl:PT5M}") Duration ttl,
+                           MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.verifiedCredentials = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        SecretKeySpec key = new SecretKeySpec(secret, HMAC_ALGORITHM);
+        this.macs = ThreadLocal.withInitial(() -> newMac(key));
+
+        GuavaCacheMetrics.monitor(meterRegistry, verifiedCredentials, "credentials");
+        log.info("Credential cache enabled: {} [maxSize={}, ttl={}]", enabled, maxSize, ttl);
+    }
+
+    public boolean isVerified(UserDetails user, String presentedPassword) {
+        if (!enabled) {
+            return false;
+        }
+        return verifiedCredentials.getIfPresent(cacheKey(user, presentedPassword)) != null;
+    }
+
+    public void markVerified(UserDetails user, String presentedPassword) {
+        if (enabled) {
+            verifiedCredentials.put(cacheKey(user, presentedPassword), normalize(user.getUsername()));
+        }
+    }
+
+    public void invalidate(String username) {
+        String normalizedUsername = normalize(username);
+        verifiedCredentials.asMap().values().removeIf(normalizedUsername::equals);
+        log.debug("Invalidated cached credentials of user {}", normalizedUsername);
+    }
+
+    private String cacheKey(UserDetails user, String presentedPassword) {
+        Mac mac = macs.get();
+        mac.update(normalize(user.getUsername()).getBytes(StandardCharsets.UTF_8));
+        mac.update((byte) 0);
+        mac.update(user.getPassword().getBytes(StandardCharsets.UTF_8));
+        mac.update((byte) 0);
+        return Base64.getEncoder().encodeToString(mac.doFinal(presentedPassword.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String normalize(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    private static Mac newMac(SecretKeySpec key) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("Not possible to initialize credential cache HMAC", ex);
+        }
+    }
+}
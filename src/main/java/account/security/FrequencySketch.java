@@ -0,0 +1,94 @@
+package account.security;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Count-min sketch estimating how often a key has been seen over the last one to two periods, in fixed memory
+ * regardless of how many distinct keys are recorded. Estimates may overcount on collisions but never undercount.
+ * <p>
+ * Keys are hashed with a randomly keyed SipHash so collisions cannot be crafted from the outside, and counters
+ * are plain atomics so concurrent recording never blocks.
+ */
+class FrequencySketch {
+
+    private static final int DEPTH = 4;
+
+    private final int width;
+    private final long periodMillis;
+    private final HashFunction hashFunction;
+    private final AtomicReference<Generations> generations;
+
+    FrequencySketch(int width, long periodMillis) {
+        if (Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("Sketch width must be a power of two");
+        }
+        SecureRandom random = new SecureRandom();
+        this.width = width;
+        this.periodMillis = periodMillis;
+        this.hashFunction = Hashing.sipHash24(random.nextLong(), random.nextLong());
+        this.generations = new AtomicReference<>(new Generations(newTable(), newTable(), System.currentTimeMillis()));
+    }
+
+    /**
+     * Increments the key and returns its estimated frequency including this occurrence.
+     */
+    int increment(String key) {
+        Generations current = rotateIfNeeded();
+        long hash = hash(key);
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = index(row, hash);
+            int count = current.current.incrementAndGet(index) + current.previous.get(index);
+            estimate = Math.min(estimate, count);
+        }
+        return estimate;
+    }
+
+    int estimate(String key) {
+        Generations current = rotateIfNeeded();
+        long hash = hash(key);
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = index(row, hash);
+            estimate = Math.min(estimate, current.current.get(index) + current.previous.get(index));
+        }
+        return estimate;
+    }
+
+    private Generations rotateIfNeeded() {
+        Generations current = generations.get();
+        long now = System.currentTimeMillis();
+        while (now - current.startedAt >= periodMillis) {
+            boolean skippedWholePeriod = now - current.startedAt >= 2 * periodMillis;
+            Generations rotated = new Generations(newTable(), skippedWholePeriod ? newTable() : current.current, now);
+            if (generations.compareAndSet(current, rotated)) {
+                return rotated;
+            }
+            current = generations.get();
+        }
+        return current;
+    }
+
+    private long hash(String key) {
+        return hashFunction.hashString(key, StandardCharsets.UTF_8).asLong();
+    }
+
+    private int index(int row, long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        return (row * width) + ((h1 + row * h2) & (width - 1));
+    }
+
+    private AtomicIntegerArray newTable() {
+        return new AtomicIntegerArray(DEPTH * width);
+    }
+
+    private record Generations(AtomicIntegerArray current, AtomicIntegerArray previous, long startedAt) {
+    }
+}
@@ -0,0 +1,74 @@
+package account.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Keeps approximate failed login frequencies per client IP and per username, so abusive clients can be
+ * rejected before any user lookup or password hashing takes place. Memory is fixed by the sketch width.
+ */
+@Slf4j
+@Component
+public class LoginThrottle {
+
+    private final boolean enabled;
+    private final Duration window;
+    private final int maxFailuresPerIp;
+    private final int maxFailuresPerUsername;
+    private final FrequencySketch failuresByIp;
+    private final FrequencySketch failuresByUsername;
+
+    @Autowired
+    public LoginThrottle(@Value("${account.security.throttle.enabled:true}") boolean enabled,
+                         @Value("${account.security.throttle.window:PT5M}") Duration window,
+                         @Value("${account.security.throttle.max-failures-per-ip:50}") int maxFailuresPerIp,
+                         @Value("${account.security.throttle.max-failures-per-username:20}") int maxFailuresPerUsername,
+                         @Value("${account.security.throttle.sketch-width:4096}") int sketchWidth) {
+        this.enabled = enabled;
+        this.window = window;
+        this.maxFailuresPerIp = maxFailuresPerIp;
+        this.maxFailuresPerUsername = maxFailuresPerUsername;
+        this.failuresByIp = new FrequencySketch(sketchWidth, window.toMillis());
+        this.failuresByUsername = new FrequencySketch(sketchWidth, window.toMillis());
+    }
+
+    public boolean isThrottled(String remoteAddress, String username) {
+        if (!enabled) {
+            return false;
+        }
+        if (remoteAddress != null && failuresByIp.estimate(remoteAddress) >= maxFailuresPerIp) {
+            log.debug("Throttling login attempt from {}", remoteAddress);
+            return true;
+        }
+        if (username != null && failuresByUsername.estimate(normalize(username)) >= maxFailuresPerUsername) {
+            log.debug("Throttling login attempt for user {}", username);
+            return true;
+        }
+        return false;
+    }
+
+    public void recordFailure(String remoteAddress, String username) {
+        if (!enabled) {
+            return;
+        }
+        if (remoteAddress != null) {
+            failuresByIp.increment(remoteAddress);
+        }
+        if (username != null) {
+            failuresByUsername.increment(normalize(username));
+        }
+    }
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    private static String normalize(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+}
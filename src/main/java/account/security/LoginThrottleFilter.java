@@ -0,0 +1,61 @@
+package account.security;
+
+import account.exception.user.TooManyLoginAttemptsException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Rejects Basic authentication attempts from clients, or against usernames, with too many recent failures
+ * before the request reaches the user lookup and the password encoder.
+ */
+public class LoginThrottleFilter extends OncePerRequestFilter {
+
+    private static final String BASIC_PREFIX = "Basic ";
+
+    private final LoginThrottle loginThrottle;
+    private final HandlerExceptionResolver resolver;
+
+    public LoginThrottleFilter(LoginThrottle loginThrottle, HandlerExceptionResolver resolver) {
+        this.loginThrottle = loginThrottle;
+        this.resolver = resolver;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header == null || !header.regionMatches(true, 0, BASIC_PREFIX, 0, BASIC_PREFIX.length())) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        if (loginThrottle.isThrottled(request.getRemoteAddr(), basicUsername(header))) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(loginThrottle.getWindow().toSeconds()));
+            resolver.resolveException(request, response, null, new TooManyLoginAttemptsException());
+            return;
+        }
+
+        chain.doFilter(request, response);
+    }
+
+    private static String basicUsername(String header) {
+        try {
+            String credentials = new String(Base64.getDecoder().decode(header.substring(BASIC_PREFIX.length()).trim()),
+                    StandardCharsets.UTF_8);
+            int separator = credentials.indexOf(':');
+            return separator < 0 ? null : credentials.substring(0, separator);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package account.security;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Configuration
+public class PasswordEncoderConfig {
+
+    private static final int MIN_CALIBRATED_STRENGTH = 10;
+    private static final int MAX_CALIBRATED_STRENGTH = 16;
+    private static final int CALIBRATION_ROUNDS = 3;
+    private static final String CALIBRATION_PASSWORD = "calibration-password";
+
+    @Bean(destroyMethod = "shutdown")
+    public BoundedPasswordEncoder passwordEncoder(
+            @Value("${account.security.bcrypt.strength:13}") int strength,
+            @Value("${account.security.bcrypt.calibrate:false}") boolean calibrate,
+            @Value("${account.security.bcrypt.target-hash-time:PT0.25S}") Duration targetHashTime,
+            @Value("${account.security.hashing.threads:0}") int threads,
+            @Value("${account.security.hashing.queue-capacity:64}") int queueCapacity,
+            @Value("${account.security.hashing.max-wait:PT5S}") Duration maxWait,
+            MeterRegistry meterRegistry) {
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        long baseHashNanos = measureBaseHashNanos();
+        int bcryptStrength = calibrate ? calibrateStrength(baseHashNanos, targetHashTime) : strength;
+        int capacity = boundedQueueCapacity(queueCapacity, poolSize, estimateHashNanos(baseHashNanos, bcryptStrength),
+                maxWait);
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacity),
+                new ThreadFactoryBuilder().setNameFormat("password-hashing-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.AbortPolicy());
+        new ExecutorServiceMetrics(executor, "passwordHashing", Tags.empty()).bindTo(meterRegistry);
+
+        log.info("Password hashing with BCrypt strength {} on {} threads and queue capacity {}", bcryptStrength,
+                poolSize, capacity);
+
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(bcryptStrength), executor, maxWait);
+    }
+
+    /**
+     * Caps the queue to the tasks the pool can finish within {@code maxWait}. A running BCrypt hash cannot be
+     * interrupted, so a task queued further back would be hashed after its caller gave up, keeping a thread busy for
+     * nothing while newer callers wait behind it; rejecting it right away is cheaper.
+     */
+    static int boundedQueueCapacity(int queueCapacity, int poolSize, long hashNanos, Duration maxWait) {
+        long drainable = poolSize * (maxWait.toNanos() / hashNanos - 1);
+        if (drainable >= queueCapacity) {
+            return queueCapacity;
+        }
+
+        int capacity = (int) Math.max(1, drainable);
+        log.warn("Password hashing queue capacity {} exceeds what {} threads can hash within {} (~{} ms per hash); " +
+                "using {}", queueCapacity, poolSize, maxWait, TimeUnit.NANOSECONDS.toMillis(hashNanos), capacity);
+        return capacity;
+    }
+
+    /**
+     * Average time of a hash at the minimum calibrated strength on this hardware.
+     */
+    static long measureBaseHashNanos() {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(MIN_CALIBRATED_STRENGTH);
+        encoder.encode(CALIBRATION_PASSWORD);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < CALIBRATION_ROUNDS; i++) {
+            encoder.encode(CALIBRATION_PASSWORD);
+        }
+        return Math.max(1, (System.nanoTime() - start) / CALIBRATION_ROUNDS);
+    }
+
+    /**
+     * Each strength unit doubles the work of a hash.
+     */
+    static long estimateHashNanos(long baseNanos, int strength) {
+        return strength >= MIN_CALIBRATED_STRENGTH
+                ? baseNanos << (strength - MIN_CALIBRATED_STRENGTH)
+                : Math.max(1, baseNanos >> (MIN_CALIBRATED_STRENGTH - strength));
+    }
+
+    /**
+     * Picks the highest BCrypt strength whose hash time on this hardware stays within the target. Each extra
+     * strength unit doubles the work, so a single measurement at the minimum strength is enough to extrapolate.
+     */
+    static int calibrateStrength(long baseNanos, Duration targetHashTime) {
+        int strength = MIN_CALIBRATED_STRENGTH;
+        long estimatedNanos = baseNanos;
+        while (strength < MAX_CALIBRATED_STRENGTH && estimatedNanos * 2 <= targetHashTime.toNanos()) {
+            strength++;
+            estimatedNanos *= 2;
+        }
+
+        log.info("Calibrated BCrypt strength {} (~{} ms per hash, target {} ms)", strength,
+                TimeUnit.NANOSECONDS.toMillis(estimatedNanos), targetHashTime.toMillis());
+        return strength;
+    }
+}
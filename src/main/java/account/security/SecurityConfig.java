@@ -1,6 +1,7 @@
 package account.security;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -10,12 +11,14 @@ import org.springframework.security.config.annotation.authentication.builders.Au
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.access.AccessDeniedHandler;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
 
 import static account.enums.UserRoleEnum.ACCOUNTANT;
 import static account.enums.UserRoleEnum.ADMINISTRATOR;
@@ -29,34 +32,46 @@ public class SecurityConfig {
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private UserDetailsPasswordService userDetailsPasswordService;
+
     @Autowired
     private PasswordEncoder passwordEncoder;
 
     @Autowired
     private AuthenticationEntryPoint restAuthenticationEntryPoint;
 
+    @Autowired
+    private CredentialCache credentialCache;
+
+    @Autowired
+    private AccessTokenService accessTokenService;
+
+    @Autowired
+    private LoginThrottle loginThrottle;
+
+    @Autowired
+    @Qualifier("handlerExceptionResolver")
+    private HandlerExceptionResolver resolver;
+
     @Bean
     public AccessDeniedHandler accessDeniedHandler(){
         return new CustomAccessDeniedHandler();
     }
 
     @Bean
-    public AuthenticationManager authenticationManager(HttpSecurity http, BCryptPasswordEncoder bCryptPasswordEncoder,
-                                                       UserDetailsService userDetailsService)
-            throws Exception {
+    public AuthenticationManager authenticationManager(HttpSecurity http) throws Exception {
         return http.getSharedObject(AuthenticationManagerBuilder.class)
                 .authenticationProvider(authenticationProvider())
-                .userDetailsService(userDetailsService)
-                .passwordEncoder(bCryptPasswordEncoder)
-                .and()
                 .build();
     }
 
     @Bean
     public DaoAuthenticationProvider authenticationProvider(){
-        DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+        DaoAuthenticationProvider provider = new CachingDaoAuthenticationProvider(credentialCache);
         provider.setPasswordEncoder(passwordEncoder);
         provider.setUserDetailsService(userDetailsService);
+        provider.setUserDetailsPasswordService(userDetailsPasswordService);
         return provider;
     }
 
@@ -74,14 +89,34 @@ public class SecurityConfig {
                 .authorizeHttpRequests()
                 .requestMatchers(HttpMethod.POST,"/api/auth/changepass")
                 .authenticated()
+            .and()
+                .authorizeHttpRequests()
+                .requestMatchers(HttpMethod.POST,"/api/auth/token")
+                .authenticated()
             .and()
                 .authorizeHttpRequests()
                 .requestMatchers(HttpMethod.POST,"/api/acct/payments")
                 .hasRole(ACCOUNTANT.getShortName())
+            .and()
+                .authorizeHttpRequests()
+                .requestMatchers(HttpMethod.POST,"/api/acct/payments/stream")
+                .hasRole(ACCOUNTANT.getShortName())
+            .and()
+                .authorizeHttpRequests()
+                .requestMatchers(HttpMethod.GET,"/api/acct/payments/export")
+                .hasRole(ACCOUNTANT.getShortName())
+            .and()
+                .authorizeHttpRequests()
+                .requestMatchers(HttpMethod.POST,"/api/acct/payments/close")
+                .hasRole(ACCOUNTANT.getShortName())
             .and()
                 .authorizeHttpRequests()
                 .requestMatchers(HttpMethod.PUT,"/api/acct/payments")
                 .hasRole(ACCOUNTANT.getShortName())
+            .and()
+                .authorizeHttpRequests()
+                .requestMatchers(HttpMethod.PUT,"/api/acct/payments/bulk")
+                .hasRole(ACCOUNTANT.getShortName())
             .and()
                 .authorizeHttpRequests()
                 .requestMatchers(HttpMethod.GET,"/api/admin/user/")
@@ -90,6 +125,10 @@ public class SecurityConfig {
                 .authorizeHttpRequests()
                 .requestMatchers(HttpMethod.PUT,"/api/admin/user/role")
                 .hasRole(ADMINISTRATOR.getShortName())
+            .and()
+                .authorizeHttpRequests()
+                .requestMatchers(HttpMethod.POST,"/api/admin/user/bulk")
+                .hasRole(ADMINISTRATOR.getShortName())
             .and()
                 .authorizeHttpRequests()
                 .requestMatchers(HttpMethod.DELETE,"/api/admin/user/**")
@@ -104,7 +143,8 @@ public class SecurityConfig {
                 .hasRole(ADMINISTRATOR.getShortName())
             .and()
                 .authorizeHttpRequests()
-                .requestMatchers(HttpMethod.GET,"/api/security/events/")
+                .requestMatchers(HttpMethod.GET,"/api/security/events/", "/api/security/events",
+                        "/api/security/events/stream", "/api/security/events/counts")
                 .hasRole(AUDITOR.getShortName())
             .and()
                 .authorizeHttpRequests()
@@ -115,7 +155,11 @@ public class SecurityConfig {
                 .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
             .and()
                 .exceptionHandling()
-                .accessDeniedHandler(accessDeniedHandler());
+                .accessDeniedHandler(accessDeniedHandler())
+            .and()
+                .addFilterBefore(new LoginThrottleFilter(loginThrottle, resolver), BasicAuthenticationFilter.class)
+                .addFilterBefore(new TokenAuthenticationFilter(accessTokenService, restAuthenticationEntryPoint),
+                        BasicAuthenticationFilter.class);
         return http.build();
     }
 
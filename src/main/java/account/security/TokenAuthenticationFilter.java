@@ -0,0 +1,72 @@
+package account.security;
+
+import account.entity.AppUser;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.AuthenticationEntryPoint;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+import static account.controller.UserController.AUTH_CHANGE_PASS_URL;
+import static account.controller.UserController.AUTH_TOKEN_URL;
+
+/**
+ * Authenticates requests carrying a {@code Bearer} access token issued by {@link AccessTokenService}, without
+ * loading the user nor running the password encoder. Issuing a token and changing the password only accept Basic
+ * credentials, so that a leaked token can neither renew itself nor take the account over.
+ */
+@Slf4j
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final String BEARER_PREFIX = AccessTokenService.TOKEN_TYPE + " ";
+
+    private final AccessTokenService accessTokenService;
+    private final AuthenticationEntryPoint authenticationEntryPoint;
+
+    public TokenAuthenticationFilter(AccessTokenService accessTokenService,
+                                     AuthenticationEntryPoint authenticationEntryPoint) {
+        this.accessTokenService = accessTokenService;
+        this.authenticationEntryPoint = authenticationEntryPoint;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getServletPath();
+        return AUTH_TOKEN_URL.equals(path) || AUTH_CHANGE_PASS_URL.equals(path);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header == null || !header.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        try {
+            AppUser principal = accessTokenService.authenticate(header.substring(BEARER_PREFIX.length()).trim());
+            SecurityContext context = SecurityContextHolder.createEmptyContext();
+            context.setAuthentication(UsernamePasswordAuthenticationToken.authenticated(principal, null,
+                    principal.getAuthorities()));
+            SecurityContextHolder.setContext(context);
+        } catch (AuthenticationException ex) {
+            log.debug("Access token authentication failed: {}", ex.getMessage());
+            SecurityContextHolder.clearContext();
+            authenticationEntryPoint.commence(request, response, ex);
+            return;
+        }
+
+        chain.doFilter(request, response);
+    }
+}
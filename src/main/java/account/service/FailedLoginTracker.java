@@ -0,0 +1,86 @@
+package account.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory sliding window of failed logins per username, replacing the persisted failed attempts counter.
+ * <p>
+ * Windows live in a segmented cache, so different users never contend, and each window is a ring of the last
+ * {@link #MAX_LOGIN_ATTEMPTS} failure timestamps updated with atomics only. Failures older than the configured
+ * window no longer count and idle windows are dropped from memory.
+ */
+@Component
+public class FailedLoginTracker {
+
+    public static final int MAX_LOGIN_ATTEMPTS = 5;
+
+    private final Cache<String, AttemptWindow> windows;
+    private final long windowMillis;
+
+    @Autowired
+    public FailedLoginTracker(@Value("${account.security.lockout.window:PT24H}") Duration window,
+                              @Value("${account.security.lockout.max-tracked-users:100000}") long maxTrackedUsers) {
+        this.windowMillis = window.toMillis();
+        this.windows = CacheBuilder.newBuilder()
+                .maximumSize(maxTrackedUsers)
+                .expireAfterAccess(window)
+                .build();
+    }
+
+    /**
+     * Records a failed login and returns how many failures the user has inside the current window.
+     */
+    public int recordFailure(String username) {
+        long now = System.currentTimeMillis();
+        try {
+            return windows.get(normalize(username), AttemptWindow::new).record(now, now - windowMillis);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    public int failures(String username) {
+        AttemptWindow window = windows.getIfPresent(normalize(username));
+        return window == null ? 0 : window.count(System.currentTimeMillis() - windowMillis);
+    }
+
+    public void reset(String username) {
+        windows.invalidate(normalize(username));
+    }
+
+    private static String normalize(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class AttemptWindow {
+
+        private final AtomicLongArray failureTimestamps = new AtomicLongArray(MAX_LOGIN_ATTEMPTS);
+        private final AtomicInteger cursor = new AtomicInteger();
+
+        int record(long now, long windowStart) {
+            int slot = Math.floorMod(cursor.getAndIncrement(), failureTimestamps.length());
+            failureTimestamps.set(slot, now);
+            return count(windowStart);
+        }
+
+        int count(long windowStart) {
+            int failures = 0;
+            for (int i = 0; i < failureTimestamps.length(); i++) {
+                if (failureTimestamps.get(i) > windowStart) {
+                    failures++;
+                }
+            }
+            return failures;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package account.service;
+
+import account.exception.IdempotencyKeyException;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the outcome of requests sent with an idempotency key, so that a client retrying after a timeout gets the
+ * original response instead of running the request again.
+ * <p>
+ * Keys are scoped per user and kept for {@code account.payments.idempotency.retention}. Each entry holds a digest of
+ * the request it was first used with and the result or business error it produced; persistence failures are not
+ * stored, as their transaction rolled back and a retry is expected to run again. Concurrent requests with the same key
+ * wait for the first one and then share its outcome.
+ */
+@Slf4j
+@Component
+public class IdempotencyStore {
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final Cache<String, StoredOutcome> outcomes;
+
+    @Autowired
+    public IdempotencyStore(@Value("${account.payments.idempotency.max-keys:100000}") long maxKeys,
+                            @Value("${account.payments.idempotency.retention:PT24H}") Duration retention,
+                            MeterRegistry meterRegistry) {
+        this.outcomes = CacheBuilder.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterWrite(retention)
+                .recordStats()
+                .build();
+        GuavaCacheMetrics.monitor(meterRegistry, outcomes, "idempotency");
+    }
+
+    /**
+     * Runs {@code action} unless {@code key} was already used by {@code scope}, in which case the stored result is
+     * returned or the stored error thrown again.
+     *
+     * @param requestDigest digest of the request, used to reject a key reused for a different request
+     */
+    public <T> Outcome<T> execute(String scope, String key, String requestDigest, Supplier<T> action) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IdempotencyKeyException("Idempotency key must have between 1 and " + MAX_KEY_LENGTH +
+                    " characters!");
+        }
+
+        AtomicBoolean executed = new AtomicBoolean();
+        StoredOutcome stored;
+        try {
+            stored = outcomes.get(scope + '\n' + key, () -> {
+                executed.set(true);
+                return run(requestDigest, action);
+            });
+        } catch (UncheckedExecutionException | ExecutionError ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw (Error) ex.getCause();
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex.getCause());
+        }
+
+        if (!stored.requestDigest().equals(requestDigest)) {
+            log.error("Idempotency key {} of {} was reused for a different request", key, scope);
+            throw new IdempotencyKeyException("Idempotency key was already used for a different request!");
+        }
+        if (!executed.get()) {
+            log.info("Replaying stored response for idempotency key {} of {}", key, scope);
+        }
+        if (stored.error() != null) {
+            throw stored.error();
+        }
+
+        @SuppressWarnings("unchecked")
+        T result = (T) stored.result();
+        return new Outcome<>(result, !executed.get());
+    }
+
+    private static StoredOutcome run(String requestDigest, Supplier<?> action) {
+        try {
+            return new StoredOutcome(requestDigest, action.get(), null);
+        } catch (DataAccessException | TransactionException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            return new StoredOutcome(requestDigest, null, ex);
+        }
+    }
+
+    public record Outcome<T>(T result, boolean replayed) {
+    }
+
+    private record StoredOutcome(String requestDigest, Object result, RuntimeException error) {
+    }
+}
@@ -0,0 +1,96 @@
+package account.service;
+
+import account.dto.PaymentDto;
+import account.entity.Payment;
+import account.repository.PaymentBatchRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+
+/**
+ * Exports payments in the format accepted by the streaming upload, so an export can be loaded again as is.
+ * <p>
+ * Rows are read through a database cursor and written as they arrive, flushing every
+ * {@code account.payments.export.fetch-size} rows, so memory use does not depend on the number of payments and
+ * clients start receiving data right away.
+ */
+@Slf4j
+@Service
+public class PaymentExportService {
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    private final PaymentBatchRepository paymentBatchRepository;
+    private final ObjectWriter ndjsonWriter;
+    private final ObjectWriter csvWriter;
+    private final int fetchSize;
+
+    @Autowired
+    public PaymentExportService(PaymentBatchRepository paymentBatchRepository, ObjectMapper objectMapper,
+                                @Value("${account.payments.export.fetch-size:1000}") int fetchSize) {
+        this.paymentBatchRepository = paymentBatchRepository;
+        this.ndjsonWriter = objectMapper.writerFor(PaymentDto.class)
+                .without(SerializationFeature.INDENT_OUTPUT)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("\n");
+        CsvSchema schema = CsvSchema.builder()
+                .addColumn("employee")
+                .addColumn("period")
+                .addColumn("salary")
+                .build()
+                .withHeader();
+        this.csvWriter = new CsvMapper().writerFor(PaymentDto.class)
+                .with(schema)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Writes all payments with periods between {@code from} and {@code to}, both inclusive and optional, in the
+     * order they were added, and closes {@code out}.
+     */
+    public void export(Optional<String> fromOpt, Optional<String> toOpt, Format format, OutputStream out)
+            throws IOException {
+
+        int from = fromOpt.map(Payment::encodePeriod).orElse(0);
+        int to = toOpt.map(Payment::encodePeriod).orElse(Integer.MAX_VALUE);
+        ObjectWriter writer = format == Format.CSV ? csvWriter : ndjsonWriter;
+
+        long[] exported = new long[1];
+        try (SequenceWriter rows = writer.writeValues(out)) {
+            paymentBatchRepository.forEachPayment(from, to, fetchSize, payment -> {
+                try {
+                    rows.write(new PaymentDto(payment.employee(), Payment.decodePeriod(payment.period()),
+                            payment.salary()));
+                    if (++exported[0] % fetchSize == 0) {
+                        rows.flush();
+                    }
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            if (format == Format.NDJSON && exported[0] > 0) {
+                rows.flush();
+                out.write('\n');
+            }
+        } catch (UncheckedIOException ex) {
+            log.warn("Payment export aborted after {} rows", exported[0]);
+            throw ex.getCause();
+        }
+        log.info("Exported {} payments as {}", exported[0], format);
+    }
+}
@@ -0,0 +1,92 @@
+package account.service;
+
+import account.dto.PaymentDetailsDto;
+import account.entity.AppUser;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of the rendered payment history of each employee, as returned by
+ * {@link PaymentService#findUserPayments(java.util.Optional, String)} without a period.
+ * <p>
+ * Payments only change through the {@link PaymentService} and {@link PaymentIngestionService} write paths, which
+ * evict the affected employees. As in {@link UserPrincipalCache}, a generation counter keeps a read that raced
+ * with a write from caching a stale history, and evictions inside a transaction run again after it completes.
+ */
+@Slf4j
+@Component
+public class PaymentHistoryCache {
+
+    private final Cache<String, List<PaymentDetailsDto>> histories;
+    private final AtomicLong generation = new AtomicLong();
+
+    @Autowired
+    public PaymentHistoryCache(@Value("${account.payments.cache.max-size:10000}") long maxSize,
+                               @Value("${account.payments.cache.ttl:PT10M}") Duration ttl,
+                               MeterRegistry meterRegistry) {
+        this.histories = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        GuavaCacheMetrics.monitor(meterRegistry, histories, "payments");
+    }
+
+    public List<PaymentDetailsDto> get(String username, Supplier<List<PaymentDetailsDto>> loader) {
+        String key = AppUser.usernameKeyOf(username);
+
+        List<PaymentDetailsDto> cached = histories.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        long observedGeneration = generation.get();
+        List<PaymentDetailsDto> loaded = List.copyOf(loader.get());
+        histories.put(key, loaded);
+        if (generation.get() != observedGeneration) {
+            histories.invalidate(key);
+        }
+        return loaded;
+    }
+
+    public void evict(String username) {
+        evictAll(List.of(AppUser.usernameKeyOf(username)));
+    }
+
+    /**
+     * @param usernameKeys username keys as built by {@link AppUser#usernameKeyOf(String)}
+     */
+    public void evictAll(Collection<String> usernameKeys) {
+        List<String> keys = List.copyOf(usernameKeys);
+        evictNow(keys);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evictNow(keys);
+                }
+            });
+        }
+    }
+
+    private void evictNow(List<String> keys) {
+        generation.incrementAndGet();
+        histories.invalidateAll(keys);
+        log.debug("Evicted cached payment history of {} users", keys.size());
+    }
+}
@@ -0,0 +1,415 @@
+package account.service;
+
+import account.dto.PaymentIngestionEventDto;
+import account.entity.AppUser;
+import account.entity.Payment;
+import account.exception.payment.PaymentDoesNotExistException;
+import account.repository.PaymentBatchRepository;
+import account.repository.PaymentBatchRepository.UserPayment;
+import account.repository.UserBatchRepository;
+import account.service.snapshot.PayrollSnapshotService;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static account.dto.PaymentDto.EMPLOYEE_REGEXP;
+import static account.dto.PaymentDto.EMPTY_EMPLOYEE_MESSAGE;
+import static account.dto.PaymentDto.INVALID_EMPLOYEE_MESSAGE;
+import static account.dto.PaymentDto.INVALID_PERIOD_MESSAGE;
+import static account.dto.PaymentDto.INVALID_SALARY_MESSAGE;
+import static account.dto.PaymentDto.PERIOD_REGEXP;
+import static account.dto.PaymentIngestionEventDto.correctionCompleted;
+import static account.dto.PaymentIngestionEventDto.correctionProgress;
+import static account.dto.PaymentIngestionEventDto.rejected;
+import static account.repository.PaymentBatchRepository.userPeriodKey;
+
+/**
+ * Adds payments from an NDJSON or CSV stream of arbitrary size, or corrects salaries of existing ones.
+ * <p>
+ * Rows are pulled one at a time from a Jackson streaming parser and validated with the {@code PaymentDto} rules.
+ * Every chunk of rows is committed in its own transaction, and its rejected rows plus a progress line are handed
+ * to the caller right away, so only one chunk is ever held in memory. Unlike {@link PaymentService#addUserPayments},
+ * a bad row only rejects that row.
+ */
+@Slf4j
+@Service
+public class PaymentIngestionService {
+
+    private static final Pattern EMPLOYEE_PATTERN = Pattern.compile(EMPLOYEE_REGEXP);
+    private static final Pattern PERIOD_PATTERN = Pattern.compile(PERIOD_REGEXP);
+
+    private static final String DUPLICATED_PAYMENT_MESSAGE = "Impossible to add duplicated payment!";
+    private static final String UNKNOWN_EMPLOYEE_MESSAGE = "Employee does not exist";
+    private static final String UNKNOWN_PAYMENT_MESSAGE = new PaymentDoesNotExistException().getMessage();
+    private static final String DUPLICATED_CORRECTION_MESSAGE = "Duplicated correction for the same period!";
+    private static final String CLOSED_PERIOD_MESSAGE = "Payroll period is closed!";
+
+    private final PaymentBatchRepository paymentBatchRepository;
+    private final UserBatchRepository userBatchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final PaymentHistoryCache paymentHistoryCache;
+    private final PayrollSnapshotService payrollSnapshotService;
+    private final ObjectMapper objectMapper;
+    private final CsvMapper csvMapper = new CsvMapper();
+    private final int chunkSize;
+
+    @Autowired
+    public PaymentIngestionService(PaymentBatchRepository paymentBatchRepository,
+                                   UserBatchRepository userBatchRepository, TransactionTemplate transactionTemplate,
+                                   PaymentHistoryCache paymentHistoryCache,
+                                   PayrollSnapshotService payrollSnapshotService, ObjectMapper objectMapper,
+                                   @Value("${account.payments.ingestion.chunk-size:1000}") int chunkSize) {
+        this.paymentBatchRepository = paymentBatchRepository;
+        this.userBatchRepository = userBatchRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.paymentHistoryCache = paymentHistoryCache;
+        this.payrollSnapshotService = payrollSnapshotService;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    public void ingestNdjson(InputStream payments, Consumer<List<PaymentIngestionEventDto>> events) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(payments)) {
+            process(parser, new Progress(false), this::addPayments, events);
+        }
+    }
+
+    /**
+     * Expects a header line naming the {@code employee}, {@code period} and {@code salary} columns.
+     */
+    public void ingestCsv(InputStream payments, Consumer<List<PaymentIngestionEventDto>> events) throws IOException {
+        try (JsonParser parser = csvMapper.getFactory().createParser(payments)) {
+            parser.setSchema(CsvSchema.emptySchema().withHeader());
+            process(parser, new Progress(false), this::addPayments, events);
+        }
+    }
+
+    /**
+     * Corrects the salaries of existing payments from a JSON array or NDJSON stream of payments, with one batched
+     * {@code UPDATE} keyed by {@code (user, period)} per chunk. Rows matching no payment are reported as rejected.
+     */
+    public void correctSalaries(InputStream corrections, Consumer<List<PaymentIngestionEventDto>> events)
+            throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(corrections)) {
+            process(parser, new Progress(true), this::correctPayments, events);
+        }
+    }
+
+    private void process(JsonParser parser, Progress progress, ChunkWriter chunkWriter,
+                         Consumer<List<PaymentIngestionEventDto>> events) throws IOException {
+        List<PaymentRow> chunk = new ArrayList<>(chunkSize);
+        List<PaymentIngestionEventDto> chunkEvents = new ArrayList<>();
+        long row = 0;
+
+        try {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token != JsonToken.START_OBJECT) {
+                    continue;
+                }
+                row++;
+                PaymentRow paymentRow = readRow(parser, row);
+                String error = validate(paymentRow);
+                if (error == null && payrollSnapshotService.isClosed(Payment.encodePeriod(paymentRow.period()))) {
+                    error = CLOSED_PERIOD_MESSAGE;
+                }
+                if (error != null) {
+                    chunkEvents.add(rejected(row, paymentRow.employee(), paymentRow.period(), error));
+                } else {
+                    chunk.add(paymentRow);
+                }
+
+                if (chunk.size() + chunkEvents.size() >= chunkSize) {
+                    commitChunk(chunk, chunkEvents, progress, chunkWriter, events);
+                }
+            }
+        } catch (JsonProcessingException ex) {
+            log.error("Malformed payment after row {}; stopping ingestion", row, ex);
+            commitChunk(chunk, chunkEvents, progress, chunkWriter, events);
+            events.accept(List.of(rejected(row + 1, null, null, "Malformed payment: " + ex.getOriginalMessage()),
+                    progress.completed()));
+            return;
+        }
+
+        commitChunk(chunk, chunkEvents, progress, chunkWriter, events);
+        log.info("Processed {} payment rows; {} applied, {} rejected", progress.processed, progress.applied,
+                progress.rejected);
+        events.accept(List.of(progress.completed()));
+    }
+
+    private PaymentRow readRow(JsonParser parser, long row) throws IOException {
+        String employee = null;
+        String period = null;
+        String salary = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (value.isStructStart()) {
+                parser.skipChildren();
+                continue;
+            }
+
+            String text = value == JsonToken.VALUE_NULL ? null : parser.getText();
+            switch (field) {
+                case "employee" -> employee = text;
+                case "period" -> period = text;
+                case "salary" -> salary = text;
+                default -> { }
+            }
+        }
+        return new PaymentRow(row, employee, period, salary);
+    }
+
+    private static String validate(PaymentRow row) {
+        if (row.employee() == null || row.employee().isEmpty()) {
+            return EMPTY_EMPLOYEE_MESSAGE;
+        }
+        if (!EMPLOYEE_PATTERN.matcher(row.employee()).matches()) {
+            return INVALID_EMPLOYEE_MESSAGE;
+        }
+        if (row.period() == null || !PERIOD_PATTERN.matcher(row.period()).matches()) {
+            return INVALID_PERIOD_MESSAGE;
+        }
+        Long salary = row.salaryValue();
+        if (salary == null || salary <= 0) {
+            return INVALID_SALARY_MESSAGE;
+        }
+        return null;
+    }
+
+    private void commitChunk(List<PaymentRow> chunk, List<PaymentIngestionEventDto> chunkEvents, Progress progress,
+                             ChunkWriter chunkWriter, Consumer<List<PaymentIngestionEventDto>> events) {
+        progress.processed += chunk.size() + chunkEvents.size();
+        progress.rejected += chunkEvents.size();
+
+        if (!chunk.isEmpty()) {
+            try {
+                chunkWriter.write(chunk, chunkEvents, progress);
+            } catch (DataAccessException ex) {
+                log.error("Chunk of {} payment rows rolled back", chunk.size(), ex);
+                chunkEvents.add(rejected(chunk.get(0).row(), null, null, String.format(
+                        "Chunk of payments up to row %d rolled back: %s", chunk.get(chunk.size() - 1).row(),
+                        ex.getMostSpecificCause().getMessage())));
+            }
+        }
+
+        chunkEvents.add(progress.progress());
+        events.accept(List.copyOf(chunkEvents));
+        chunk.clear();
+        chunkEvents.clear();
+    }
+
+    private void addPayments(List<PaymentRow> chunk, List<PaymentIngestionEventDto> chunkEvents, Progress progress) {
+        List<PaymentRow> resolvedRows = new ArrayList<>(chunk.size());
+        List<UserPayment> newPayments = resolve(chunk, resolvedRows, chunkEvents, progress);
+        if (newPayments.isEmpty()) {
+            return;
+        }
+
+        List<PaymentRow> closedRows = new ArrayList<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                closedRows.addAll(dropClosedPeriods(newPayments, resolvedRows));
+                if (!newPayments.isEmpty()) {
+                    paymentBatchRepository.insertPayments(newPayments);
+                }
+                paymentHistoryCache.evictAll(usernameKeys(chunk));
+            });
+            progress.applied += newPayments.size();
+        } catch (DataAccessException ex) {
+            progress.rejected += newPayments.size() + closedRows.size();
+            throw ex;
+        }
+        closedRows.forEach(row -> reject(row, CLOSED_PERIOD_MESSAGE, chunkEvents, progress));
+    }
+
+    private void correctPayments(List<PaymentRow> chunk, List<PaymentIngestionEventDto> chunkEvents,
+                                 Progress progress) {
+        Map<String, Long> userIds = userBatchRepository.findIdsByUsernameKeys(usernameKeys(chunk));
+
+        Set<String> chunkUserPeriods = new HashSet<>();
+        List<PaymentRow> matchedRows = new ArrayList<>(chunk.size());
+        List<UserPayment> corrections = new ArrayList<>(chunk.size());
+        for (PaymentRow row : chunk) {
+            Long userId = userIds.get(AppUser.usernameKeyOf(row.employee()));
+            if (userId == null) {
+                reject(row, UNKNOWN_EMPLOYEE_MESSAGE, chunkEvents, progress);
+                continue;
+            }
+
+            Integer period = Payment.encodePeriod(row.period());
+            if (!chunkUserPeriods.add(userPeriodKey(userId, period))) {
+                reject(row, DUPLICATED_CORRECTION_MESSAGE, chunkEvents, progress);
+                continue;
+            }
+            matchedRows.add(row);
+            corrections.add(new UserPayment(userId, period, row.salaryValue()));
+        }
+        if (corrections.isEmpty()) {
+            return;
+        }
+
+        List<PaymentRow> closedRows = new ArrayList<>();
+        int[] updateCounts;
+        try {
+            updateCounts = transactionTemplate.execute(status -> {
+                closedRows.addAll(dropClosedPeriods(corrections, matchedRows));
+                int[] counts = corrections.isEmpty() ? new int[0]
+                        : paymentBatchRepository.updateSalaries(corrections);
+                paymentHistoryCache.evictAll(usernameKeys(matchedRows));
+                return counts;
+            });
+        } catch (DataAccessException ex) {
+            progress.rejected += corrections.size() + closedRows.size();
+            throw ex;
+        }
+        closedRows.forEach(row -> reject(row, CLOSED_PERIOD_MESSAGE, chunkEvents, progress));
+
+        for (int i = 0; i < updateCounts.length; i++) {
+            if (updateCounts[i] == 0) {
+                reject(matchedRows.get(i), UNKNOWN_PAYMENT_MESSAGE, chunkEvents, progress);
+            } else {
+                progress.applied++;
+            }
+        }
+    }
+
+    /**
+     * Locks the periods of the chunk's writes until its transaction commits, then removes the writes to periods
+     * closed since their rows were validated, along with those rows.
+     *
+     * @return the rows removed
+     */
+    private List<PaymentRow> dropClosedPeriods(List<UserPayment> writes, List<PaymentRow> rows) {
+        Set<Integer> closed = payrollSnapshotService.lockPeriods(writes.stream()
+                .map(UserPayment::period)
+                .collect(Collectors.toSet()));
+        if (closed.isEmpty()) {
+            return List.of();
+        }
+
+        List<PaymentRow> closedRows = new ArrayList<>();
+        Iterator<UserPayment> writeIterator = writes.iterator();
+        Iterator<PaymentRow> rowIterator = rows.iterator();
+        while (writeIterator.hasNext()) {
+            UserPayment write = writeIterator.next();
+            PaymentRow row = rowIterator.next();
+            if (closed.contains(write.period())) {
+                writeIterator.remove();
+                rowIterator.remove();
+                closedRows.add(row);
+            }
+        }
+        return closedRows;
+    }
+
+    private static Set<String> usernameKeys(List<PaymentRow> rows) {
+        return rows.stream()
+                .map(row -> AppUser.usernameKeyOf(row.employee()))
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Turns the valid rows of a chunk into payments, rejecting rows of unknown employees and periods already paid,
+     * either earlier in the upload or before it. The row of every payment is added to {@code resolvedRows}, in the
+     * same order.
+     */
+    private List<UserPayment> resolve(List<PaymentRow> chunk, List<PaymentRow> resolvedRows,
+                                      List<PaymentIngestionEventDto> chunkEvents, Progress progress) {
+        Set<String> usernameKeys = new HashSet<>();
+        Set<Integer> periods = new HashSet<>();
+        for (PaymentRow row : chunk) {
+            usernameKeys.add(AppUser.usernameKeyOf(row.employee()));
+            periods.add(Payment.encodePeriod(row.period()));
+        }
+
+        Map<String, Long> userIds = userBatchRepository.findIdsByUsernameKeys(usernameKeys);
+        Set<String> existingUserPeriods = userIds.isEmpty() ? Set.of()
+                : paymentBatchRepository.findExistingUserPeriods(userIds.values(), periods);
+
+        Set<String> chunkUserPeriods = new HashSet<>();
+        List<UserPayment> newPayments = new ArrayList<>(chunk.size());
+        for (PaymentRow row : chunk) {
+            Long userId = userIds.get(AppUser.usernameKeyOf(row.employee()));
+            if (userId == null) {
+                reject(row, UNKNOWN_EMPLOYEE_MESSAGE, chunkEvents, progress);
+                continue;
+            }
+
+            Integer period = Payment.encodePeriod(row.period());
+            String userPeriod = userPeriodKey(userId, period);
+            if (existingUserPeriods.contains(userPeriod) || !chunkUserPeriods.add(userPeriod)) {
+                reject(row, DUPLICATED_PAYMENT_MESSAGE, chunkEvents, progress);
+                continue;
+            }
+            newPayments.add(new UserPayment(userId, period, row.salaryValue()));
+            resolvedRows.add(row);
+        }
+        return newPayments;
+    }
+
+    private static void reject(PaymentRow row, String message, List<PaymentIngestionEventDto> chunkEvents,
+                               Progress progress) {
+        chunkEvents.add(rejected(row.row(), row.employee(), row.period(), message));
+        progress.rejected++;
+    }
+
+    private record PaymentRow(long row, String employee, String period, String salary) {
+
+        Long salaryValue() {
+            try {
+                return salary == null ? null : Long.valueOf(salary.trim());
+            } catch (NumberFormatException ex) {
+                return null;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ChunkWriter {
+        void write(List<PaymentRow> chunk, List<PaymentIngestionEventDto> chunkEvents, Progress progress);
+    }
+
+    private static final class Progress {
+        private final boolean corrections;
+        private long processed;
+        private long applied;
+        private long rejected;
+
+        private Progress(boolean corrections) {
+            this.corrections = corrections;
+        }
+
+        private PaymentIngestionEventDto progress() {
+            return corrections ? correctionProgress(processed, applied, rejected)
+                    : PaymentIngestionEventDto.progress(processed, applied, rejected);
+        }
+
+        private PaymentIngestionEventDto completed() {
+            return corrections ? correctionCompleted(processed, applied, rejected)
+                    : PaymentIngestionEventDto.completed(processed, applied, rejected);
+        }
+    }
+}
@@ -2,21 +2,30 @@ package account.service;
 
 import account.dto.PaymentDetailsDto;
 import account.dto.PaymentDto;
+import account.dto.PaymentPageDto;
 import account.entity.AppUser;
 import account.entity.Payment;
+import account.exception.InvalidCursorException;
 import account.exception.payment.InvalidPaymentException;
 import account.exception.payment.PaymentDoesNotExistException;
+import account.repository.PaymentBatchRepository;
+import account.repository.PaymentBatchRepository.UserPayment;
+import account.repository.PaymentDetailsView;
 import account.repository.PaymentRepository;
-import account.repository.UserRepository;
+import account.repository.UserBatchRepository;
+import account.service.snapshot.PayrollSnapshot;
+import account.service.snapshot.PayrollSnapshotService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
-import java.util.HashMap;
+import java.util.Base64;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -24,75 +33,88 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import static account.repository.PaymentBatchRepository.userPeriodKey;
+
 @Slf4j
 @Service
 public class PaymentService {
 
     private final PaymentRepository paymentRepository;
-    private final UserRepository userRepository;
+    private final PaymentBatchRepository paymentBatchRepository;
+    private final UserBatchRepository userBatchRepository;
+    private final PayslipFormatter payslipFormatter;
+    private final PaymentHistoryCache paymentHistoryCache;
+    private final PayrollSnapshotService payrollSnapshotService;
 
     @Autowired
-    public PaymentService(PaymentRepository paymentRepository, UserRepository userRepository){
+    public PaymentService(PaymentRepository paymentRepository, PaymentBatchRepository paymentBatchRepository,
+                          UserBatchRepository userBatchRepository, PayslipFormatter payslipFormatter,
+                          PaymentHistoryCache paymentHistoryCache, PayrollSnapshotService payrollSnapshotService){
         this.paymentRepository = paymentRepository;
-        this.userRepository = userRepository;
+        this.paymentBatchRepository = paymentBatchRepository;
+        this.userBatchRepository = userBatchRepository;
+        this.payslipFormatter = payslipFormatter;
+        this.paymentHistoryCache = paymentHistoryCache;
+        this.payrollSnapshotService = payrollSnapshotService;
     }
 
+    /**
+     * Adds all payments of an upload or none of them. Employees are resolved and existing periods are checked with
+     * one set-based query each, and the payments are written with JDBC batches; the {@code (user, period)} unique
+     * constraint rejects duplicates uploaded concurrently.
+     */
     @Transactional
-    public void addNewPayments(List<PaymentDto> paymentDtoList){
+    public void addUserPayments(List<PaymentDto> paymentDtoList){
 
-        Map<String, List<PaymentDto>> paymentsByUser = new HashMap<>();
+        Set<String> usernameKeys = paymentDtoList.stream()
+                .map(paymentDto -> AppUser.usernameKeyOf(paymentDto.getEmployee()))
+                .collect(Collectors.toSet());
+        Map<String, Long> userIds = userBatchRepository.findIdsByUsernameKeys(usernameKeys);
 
-        for(PaymentDto paymentDto : paymentDtoList) {
-            List<PaymentDto> currentPayments = paymentsByUser.getOrDefault(paymentDto.getEmployee(), new ArrayList<>());
-            currentPayments.add(paymentDto);
-            paymentsByUser.put(paymentDto.getEmployee(), currentPayments);
+        if(userIds.size() != usernameKeys.size()) {
+            usernameKeys.removeAll(userIds.keySet());
+            log.error("Not possible to add payments for users {} as they do not exist", usernameKeys);
+            throw new InvalidPaymentException("Not possible to add payment as employee does not exist");
         }
 
-        for(Map.Entry<String, List<PaymentDto>> entry : paymentsByUser.entrySet()){
-
-            Optional<AppUser> userOpt = userRepository.findByUsernameIgnoreCase(entry.getKey());
-            if(!userOpt.isPresent()) {
-                log.error("Not possible to add payments for user {} as it does not exist", entry.getKey());
-                throw new InvalidPaymentException("Not possible to add payment as employee does not exist");
-            }
+        Set<String> uploadedUserPeriods = new HashSet<>();
+        Set<Integer> periods = new HashSet<>();
+        List<UserPayment> newPayments = new ArrayList<>(paymentDtoList.size());
 
-            long distinctPeriods = entry.getValue().stream().map(p -> p.getPeriod()).distinct().count();
-            if(distinctPeriods != entry.getValue().size()){
+        for(PaymentDto paymentDto : paymentDtoList){
+            Long userId = userIds.get(AppUser.usernameKeyOf(paymentDto.getEmployee()));
+            Integer period = Payment.encodePeriod(paymentDto.getPeriod());
+            if(!uploadedUserPeriods.add(userPeriodKey(userId, period))){
                 throw new InvalidPaymentException("Impossible to add duplicated payment!");
             }
+            periods.add(period);
+            newPayments.add(new UserPayment(userId, period, paymentDto.getSalary()));
+        }
 
-            AppUser userToUpdate = userOpt.get();
-            Set<Payment> newUserPayments = new HashSet<>();
-            Set<Payment> currentPaymentSet = userToUpdate.getPayments();
-
-            List<String> allExistentPaymentPeriods = currentPaymentSet
-                    .stream().map(p -> p.getPeriod())
-                    .collect(Collectors.toList());
-
-            for(PaymentDto paymentDto : entry.getValue()){
-
-                if(allExistentPaymentPeriods.contains(paymentDto.getPeriod())){
-                    log.error("Skipping payment for user {} as period '{}' already exists!", entry.getKey(),
-                            paymentDto.getPeriod());
-                    throw new InvalidPaymentException("Impossible to add duplicated payment!");
-                }
-
-                Payment payment = new Payment(paymentDto.getPeriod(), paymentDto.getSalary(), userToUpdate);
-                Payment newPayment = paymentRepository.save(payment);
-                newUserPayments.add(newPayment);
-                log.info("Adding new payment with period '{}' and value {} for user {}",
-                        paymentDto.getPeriod(), paymentDto.getSalary(), userToUpdate.getUsername());
-            }
-
-            currentPaymentSet.addAll(newUserPayments);
-            userToUpdate.setPayments(currentPaymentSet);
-            userRepository.save(userToUpdate);
+        rejectClosedPeriods(periods);
+        Set<String> existingUserPeriods = paymentBatchRepository.findExistingUserPeriods(userIds.values(), periods);
+        existingUserPeriods.retainAll(uploadedUserPeriods);
+        if(!existingUserPeriods.isEmpty()){
+            log.error("Rejecting payments as {} (user, period) pairs already exist", existingUserPeriods.size());
+            throw new InvalidPaymentException("Impossible to add duplicated payment!");
         }
 
+        try {
+            paymentBatchRepository.insertPayments(newPayments);
+            paymentHistoryCache.evictAll(userIds.keySet());
+        } catch (DuplicateKeyException ex){
+            log.error("Rejecting payments as a (user, period) pair was added concurrently", ex);
+            throw new InvalidPaymentException("Impossible to add duplicated payment!");
+        }
+        log.info("Added {} payments for {} employees", newPayments.size(), userIds.size());
     }
 
+    @Transactional
     public List<PaymentDto> updateUserPayment(String userEmail, String period, Long newSalary){
-        Optional<Payment> paymentOpt = paymentRepository.findByUserUsernameIgnoreCaseAndPeriod(userEmail, period);
+        Integer encodedPeriod = Payment.encodePeriod(period);
+        rejectClosedPeriods(Set.of(encodedPeriod));
+        Optional<Payment> paymentOpt = paymentRepository.findByUserUsernameIgnoreCaseAndPeriod(userEmail,
+                encodedPeriod);
         if(!paymentOpt.isPresent()){
             log.error("Not possible update payment for user {} and period {}!", userEmail, period);
             throw new InvalidPaymentException();
@@ -102,82 +124,120 @@ public class PaymentService {
         paymentToBeUpdated.setSalary(newSalary);
         log.info("Updating payment with period '{}' and salary {} for user {}", period, newSalary, userEmail);
         paymentRepository.save(paymentToBeUpdated);
+        paymentHistoryCache.evict(userEmail);
 
         return Arrays.asList(PaymentDto.toDto(paymentToBeUpdated));
     }
 
+    /**
+     * Locks the periods written to until the transaction commits, so none of them can be closed meanwhile.
+     */
+    private void rejectClosedPeriods(Set<Integer> periods){
+        Optional<Integer> closedPeriod = payrollSnapshotService.lockPeriods(periods).stream().sorted().findFirst();
+        if(closedPeriod.isPresent()){
+            String period = Payment.decodePeriod(closedPeriod.get());
+            log.error("Rejecting write to closed payroll period {}", period);
+            throw new InvalidPaymentException("Payroll period " + period + " is closed!");
+        }
+    }
+
+    /**
+     * Payments of closed periods are read from the period's snapshot rather than the database.
+     */
     private List<PaymentDetailsDto> findPaymentsByUserAndPeriod(String period, String username){
-        Optional<Payment> paymentOpt = paymentRepository.findByUserUsernameIgnoreCaseAndPeriod(username, period);
+        Integer encodedPeriod = Payment.encodePeriod(period);
+        String usernameKey = AppUser.usernameKeyOf(username);
+        Optional<PayrollSnapshot> snapshotOpt = payrollSnapshotService.findSnapshot(encodedPeriod);
+        Optional<PaymentDetailsView> paymentOpt = snapshotOpt.isPresent()
+                ? snapshotOpt.get().find(usernameKey)
+                : paymentRepository.findDetailsByUsernameKeyAndPeriod(usernameKey, encodedPeriod);
         if(!paymentOpt.isPresent()){
             log.error("Payment given period '{}' and user {} does not exist", period, username);
             throw new PaymentDoesNotExistException();
         }
-        Payment retrievedPayment = paymentOpt.get();
-        return Arrays.asList(new PaymentDetailsDto(retrievedPayment.getUser().getName(),
-                retrievedPayment.getUser().getLastName(),
-                formatPeriod(retrievedPayment.getPeriod()),
-                formatSalary(retrievedPayment.getSalary())));
+        return Arrays.asList(toPaymentDetails(paymentOpt.get()));
     }
 
     public List<PaymentDetailsDto> findUserPayments(Optional<String> periodOpt, String username){
+        return findUserPayments(periodOpt, Optional.empty(), Optional.empty(), username);
+    }
+
+    /**
+     * Lists payments of a user, newest first. A single {@code period} takes precedence over a {@code from}/{@code to}
+     * range; either end of the range may be left open.
+     */
+    public List<PaymentDetailsDto> findUserPayments(Optional<String> periodOpt, Optional<String> fromOpt,
+                                                    Optional<String> toOpt, String username){
 
         if(periodOpt.isPresent()){
           return findPaymentsByUserAndPeriod(periodOpt.get(), username);
+        } else if(fromOpt.isPresent() || toOpt.isPresent()){
+            return toPaymentDetails(paymentRepository.findDetailsByUsernameKeyAndPeriodBetween(
+                    AppUser.usernameKeyOf(username),
+                    fromOpt.map(Payment::encodePeriod).orElse(0),
+                    toOpt.map(Payment::encodePeriod).orElse(Integer.MAX_VALUE)));
         } else {
-
-            List<Payment> paymentList =  paymentRepository.findByUserUsernameIgnoreCase(username);
-
-            if(paymentList.isEmpty()){
-                return Arrays.asList(new PaymentDetailsDto());
-            }
-
-            return paymentList.stream()
-                    .sorted(Comparator.comparing(Payment::getPeriod).reversed())
-                    .map(p -> new PaymentDetailsDto(p.getUser().getName(), p.getUser().getLastName(),
-                            formatPeriod(p.getPeriod()), formatSalary(p.getSalary())))
-                    .collect(Collectors.toList());
+            String usernameKey = AppUser.usernameKeyOf(username);
+            return paymentHistoryCache.get(username,
+                    () -> toPaymentDetails(paymentRepository.findDetailsByUsernameKey(usernameKey)));
         }
     }
 
-    private String formatPeriod(String period){
-
-        String[] periodArr = period.split("-");
-
-        Map<String, String> months = new HashMap<>();
-        months.put("01", "January");
-        months.put("02", "February");
-        months.put("03", "March");
-        months.put("04", "April");
-        months.put("05", "May");
-        months.put("06", "June");
-        months.put("07", "July");
-        months.put("08", "August");
-        months.put("09", "September");
-        months.put("10", "October");
-        months.put("11", "November");
-        months.put("12", "December");
-
-        return months.get(periodArr[0]) + "-" + periodArr[1];
+    private List<PaymentDetailsDto> toPaymentDetails(List<PaymentDetailsView> paymentList){
+        if(paymentList.isEmpty()){
+            return Arrays.asList(new PaymentDetailsDto());
+        }
+
+        return paymentList.stream()
+                .map(this::toPaymentDetails)
+                .collect(Collectors.toList());
     }
 
+    /**
+     * Returns one page of a user's payments, newest first, optionally within a {@code from}/{@code to} range.
+     * Pages are delimited by the last period returned, carried in an opaque cursor, so each page is a bounded scan
+     * of the {@code (user_id, period)} index regardless of how deep into the history it is.
+     */
+    public PaymentPageDto findUserPaymentsPage(Optional<String> fromOpt, Optional<String> toOpt,
+                                               Optional<String> cursorOpt, int pageSize, String username){
+
+        int from = fromOpt.map(Payment::encodePeriod).orElse(0);
+        int to = toOpt.map(Payment::encodePeriod).orElse(Integer.MAX_VALUE);
+        if(cursorOpt.isPresent()){
+            to = Math.min(to, decodeCursor(cursorOpt.get()) - 1);
+        }
 
-    private String formatSalary(Long salary){
-        String dollars = "";
-        char[] arr = salary.toString().toCharArray();
-        String cents = "";
+        List<PaymentDetailsView> payments = paymentRepository.findDetailsByUsernameKeyAndPeriodBetween(
+                AppUser.usernameKeyOf(username), from, to, PageRequest.of(0, pageSize + 1));
 
-        for(int i = arr.length - 1; i >= arr.length - 2; i--){
-            cents = arr[i] + cents;
+        String nextCursor = null;
+        if(payments.size() > pageSize){
+            payments = payments.subList(0, pageSize);
+            nextCursor = encodeCursor(payments.get(pageSize - 1).period());
         }
 
-        for(int j = 0; j <= arr.length - 3; j++){
-            dollars = dollars + arr[j];
-        }
-        if(dollars == ""){
-            dollars = "0";
+        return new PaymentPageDto(payments.stream().map(this::toPaymentDetails).collect(Collectors.toList()),
+                nextCursor);
+    }
+
+    private PaymentDetailsDto toPaymentDetails(PaymentDetailsView payment){
+        return new PaymentDetailsDto(payment.name(), payment.lastName(),
+                payslipFormatter.formatPeriod(payment.period()),
+                payslipFormatter.formatSalary(payment.salary()));
+    }
+
+    private static String encodeCursor(int period){
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Integer.toString(period).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static int decodeCursor(String cursor){
+        try {
+            return Integer.parseInt(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII));
+        } catch (IllegalArgumentException ex){
+            log.error("Invalid payment history cursor {}", cursor);
+            throw new InvalidCursorException();
         }
-        String formattedSalary = String.format("%s dollar(s) %s cent(s)", dollars, cents);
-        return formattedSalary;
     }
 
 }
@@ -0,0 +1,60 @@
+package account.service;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Formats payment periods and salaries for payslips, e.g. {@code January-2023} and
+ * {@code 1234 dollar(s) 56 cent(s)}.
+ * <p>
+ * This runs for every row of every payment history response, so month names and two-digit cent values are looked
+ * up in precomputed tables, salaries are split arithmetically and each result is written into a single, exactly
+ * sized builder.
+ */
+@Component
+public class PayslipFormatter {
+
+    private static final String[] MONTHS = {null, "January", "February", "March", "April", "May", "June", "July",
+            "August", "September", "October", "November", "December"};
+
+    private static final String DOLLARS = " dollar(s) ";
+    private static final String CENTS = " cent(s)";
+
+    private static final char[][] TWO_DIGITS = new char[100][];
+
+    static {
+        for (int i = 0; i < TWO_DIGITS.length; i++) {
+            TWO_DIGITS[i] = new char[] {(char) ('0' + i / 10), (char) ('0' + i % 10)};
+        }
+    }
+
+    /**
+     * @param period period encoded as {@code yyyymm}
+     */
+    public String formatPeriod(int period) {
+        int month = period % 100;
+        String monthName = month >= 1 && month <= 12 ? MONTHS[month] : "null";
+        return new StringBuilder(monthName.length() + 5)
+                .append(monthName)
+                .append('-')
+                .append(period / 100)
+                .toString();
+    }
+
+    /**
+     * @param salary salary in cents; a negative salary is formatted with a negative dollar amount, e.g.
+     *               {@code -0 dollar(s) 05 cent(s)}
+     */
+    public String formatSalary(long salary) {
+        long dollars = salary / 100;
+        StringBuilder builder = new StringBuilder(DOLLARS.length() + CENTS.length() + 22);
+        if (salary < 0 && dollars == 0) {
+            builder.append('-');
+        }
+        return builder
+                .append(dollars)
+                .append(DOLLARS)
+                .append(TWO_DIGITS[(int) Math.abs(salary % 100)])
+                .append(CENTS)
+                .toString();
+    }
+}
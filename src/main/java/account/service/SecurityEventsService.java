@@ -1,15 +1,30 @@
 package account.service;
 
+import account.dto.SecurityEventCountDto;
+import account.dto.SecurityEventDto;
+import account.dto.SecurityEventPageDto;
 import account.entity.SecurityEvent;
 import account.enums.SecureEventActionEnum;
 import account.exception.ApiError;
-import account.repository.SecurityEventRepository;
+import account.exception.InvalidCursorException;
+import account.repository.SecurityEventCountFilter;
+import account.repository.SecurityEventFilter;
+import account.service.audit.SecurityEventRollups;
+import account.service.audit.SecurityEventStore;
+import account.service.audit.SecurityEventWriter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.context.request.WebRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
+import static account.controller.UserController.ADMIN_USER_BULK;
 import static account.controller.UserController.ADMIN_USER_DELETE;
 import static account.controller.UserController.ADMIN_USER_ROLE;
 import static account.controller.UserController.AUHT_SIGNUP_URL;
@@ -19,17 +34,63 @@ import static account.controller.UserController.AUTH_CHANGE_PASS_URL;
 @Service
 public class SecurityEventsService {
 
-    private final SecurityEventRepository securityEventRepository;
+    private final SecurityEventStore securityEventStore;
+    private final SecurityEventWriter securityEventWriter;
+    private final SecurityEventRollups securityEventRollups;
     private final WebRequest webRequest;
 
     @Autowired
-    public SecurityEventsService(SecurityEventRepository securityEventRepository, WebRequest webRequest) {
-        this.securityEventRepository = securityEventRepository;
+    public SecurityEventsService(SecurityEventStore securityEventStore, SecurityEventWriter securityEventWriter,
+                                 SecurityEventRollups securityEventRollups, WebRequest webRequest) {
+        this.securityEventStore = securityEventStore;
+        this.securityEventWriter = securityEventWriter;
+        this.securityEventRollups = securityEventRollups;
         this.webRequest = webRequest;
     }
 
     public List<SecurityEvent> getAllSecurityEvents() {
-        return securityEventRepository.findAll();
+        return securityEventStore.findAll();
+    }
+
+    /**
+     * Returns one page of the events matching {@code filter}, newest first. Pages are delimited by the last event id
+     * returned, carried in an opaque cursor.
+     */
+    public SecurityEventPageDto findSecurityEvents(SecurityEventFilter filter, Optional<String> cursorOpt,
+                                                   int pageSize) {
+        Long beforeId = cursorOpt.map(SecurityEventsService::decodeCursor).orElse(null);
+        List<SecurityEvent> events = securityEventStore.findPage(filter, beforeId, pageSize + 1);
+
+        String nextCursor = null;
+        if(events.size() > pageSize){
+            events = events.subList(0, pageSize);
+            nextCursor = encodeCursor(events.get(pageSize - 1).getId());
+        }
+
+        return new SecurityEventPageDto(events.stream().map(SecurityEventDto::toDto).collect(Collectors.toList()),
+                nextCursor);
+    }
+
+    /**
+     * Returns event counts per bucket from the hourly rollups, which also cover events past retention.
+     */
+    public List<SecurityEventCountDto> countSecurityEvents(SecurityEventCountFilter filter, int limit) {
+        return securityEventRollups.findCounts(filter, limit).stream()
+                .map(SecurityEventCountDto::toDto).collect(Collectors.toList());
+    }
+
+    private static String encodeCursor(long id){
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Long.toString(id).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static long decodeCursor(String cursor){
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII));
+        } catch (IllegalArgumentException ex){
+            log.error("Invalid security events cursor {}", cursor);
+            throw new InvalidCursorException();
+        }
     }
 
     public void recordLoginFailedEvent(String usernameTryingToLogin){
@@ -43,18 +104,29 @@ public class SecurityEventsService {
     public void recordSecurityEvent(SecureEventActionEnum action, String subject,
                                     String object, String path){
 
-        SecurityEvent securityEvent = new SecurityEvent(action.getName(), subject, object, path);
-        log.info("Adding a new security event: {}", securityEvent);
-        securityEventRepository.save(securityEvent);
+        recordSecurityEvent(new SecurityEvent(action.getName(), subject, object, path));
     }
 
     public void recordSecurityEvent(SecurityEvent securityEvent){
         log.info("Adding a new security event: {}", securityEvent);
-        securityEventRepository.save(securityEvent);
+        recordSecurityEvents(List.of(securityEvent));
     }
 
+    /**
+     * Hands the events to the {@link SecurityEventWriter}; events recorded inside a transaction are only written once
+     * it commits, so they still disappear along with the changes they describe when it rolls back.
+     */
     public void recordSecurityEvents(List<SecurityEvent> securityEvents){
-        securityEventRepository.saveAll(securityEvents);
+        if(TransactionSynchronizationManager.isSynchronizationActive()){
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    securityEvents.forEach(securityEventWriter::write);
+                }
+            });
+        } else {
+            securityEvents.forEach(securityEventWriter::write);
+        }
     }
 
     public static SecurityEvent grantRoleEvent(String subject, String role, String object){
@@ -78,6 +150,13 @@ public class SecurityEventsService {
                 AUHT_SIGNUP_URL);
     }
 
+    public static SecurityEvent provisionUserEvent(String subject, String object){
+        return new SecurityEvent(SecureEventActionEnum.CREATE_USER.getName(),
+                subject.toLowerCase(),
+                object.toLowerCase(),
+                ADMIN_USER_BULK);
+    }
+
     public static SecurityEvent deleteUserEvent(String subject, String object){
         return new SecurityEvent(SecureEventActionEnum.DELETE_USER.getName(),
                 subject.toLowerCase(),
@@ -0,0 +1,88 @@
+package account.service;
+
+import account.entity.AppUser;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of user principals returned by {@link UserService#loadUserByUsername(String)}.
+ * <p>
+ * A generation counter guards against a lookup that read the database before a mutation committed putting
+ * a stale principal back after the eviction; evictions requested inside a transaction run again after commit.
+ */
+@Slf4j
+@Component
+public class UserPrincipalCache {
+
+    private final Cache<String, AppUser> principals;
+    private final AtomicLong generation = new AtomicLong();
+
+    @Autowired
+    public UserPrincipalCache(@Value("${account.security.principal-cache.max-size:10000}") long maxSize,
+                              @Value("${account.security.principal-cache.ttl:PT10M}") Duration ttl,
+                              MeterRegistry meterRegistry) {
+        this.principals = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        GuavaCacheMetrics.monitor(meterRegistry, principals, "principals");
+    }
+
+    public Optional<AppUser> get(String username, Supplier<Optional<AppUser>> loader) {
+        String key = normalize(username);
+
+        AppUser cached = principals.getIfPresent(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        long observedGeneration = generation.get();
+        Optional<AppUser> loaded = loader.get();
+        loaded.ifPresent(user -> {
+            principals.put(key, user);
+            if (generation.get() != observedGeneration) {
+                principals.invalidate(key);
+            }
+        });
+        return loaded;
+    }
+
+    public void evict(String username) {
+        String key = normalize(username);
+        evictNow(key);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evictNow(key);
+                }
+            });
+        }
+    }
+
+    private void evictNow(String key) {
+        generation.incrementAndGet();
+        principals.invalidate(key);
+        log.debug("Evicted cached principal of user {}", key);
+    }
+
+    private static String normalize(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,207 @@
+package account.service;
+
+import account.dto.ProvisioningResultDto;
+import account.dto.UserDto;
+import account.entity.AppUser;
+import account.entity.Role;
+import account.entity.SecurityEvent;
+import account.exception.password.BreachedPasswordException;
+import account.exception.password.PasswordHashingUnavailableException;
+import account.exception.user.UserExistException;
+import account.repository.RoleRepository;
+import account.repository.UserBatchRepository;
+import account.repository.UserRepository;
+import account.security.BoundedPasswordEncoder;
+import account.service.password.BreachedPasswordChecker;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static account.dto.ProvisioningResultDto.created;
+import static account.dto.ProvisioningResultDto.rejected;
+import static account.enums.UserRoleEnum.USER;
+import static account.service.SecurityEventsService.provisionUserEvent;
+
+/**
+ * Creates users in bulk from a JSON array or an NDJSON stream of {@link UserDto}s.
+ * <p>
+ * Users are read incrementally and handled in chunks: each chunk is validated with the signup rules, its passwords
+ * are hashed in parallel on the hashing pool, and users and role links are inserted with JDBC batches in one
+ * transaction per chunk. Once a chunk committed, its {@code CREATE_USER} events are recorded and its results are
+ * handed to the caller, so a large import never has to be held in memory.
+ */
+@Slf4j
+@Service
+public class UserProvisioningService {
+
+    private final UserRepository userRepository;
+    private final RoleRepository roleRepository;
+    private final UserBatchRepository userBatchRepository;
+    private final BoundedPasswordEncoder passwordEncoder;
+    private final BreachedPasswordChecker breachedPasswordChecker;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final SecurityEventsService securityEventsService;
+    private final int chunkSize;
+
+    @Autowired
+    public UserProvisioningService(UserRepository userRepository, RoleRepository roleRepository,
+                                   UserBatchRepository userBatchRepository, BoundedPasswordEncoder passwordEncoder,
+                                   BreachedPasswordChecker breachedPasswordChecker, Validator validator,
+                                   ObjectMapper objectMapper, TransactionTemplate transactionTemplate,
+                                   SecurityEventsService securityEventsService,
+                                   @Value("${account.provisioning.chunk-size:500}") int chunkSize) {
+        this.userRepository = userRepository;
+        this.roleRepository = roleRepository;
+        this.userBatchRepository = userBatchRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.breachedPasswordChecker = breachedPasswordChecker;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.securityEventsService = securityEventsService;
+        this.chunkSize = chunkSize;
+    }
+
+    public void provisionUsers(InputStream users, String administrator,
+                               Consumer<List<ProvisioningResultDto>> results) throws IOException {
+
+        Role userRole = roleRepository.findByNameIgnoreCase(USER.getName()).get();
+        List<PendingUser> chunk = new ArrayList<>(chunkSize);
+        int row = 1;
+
+        // the row being read, including while hasNextValue() parses it
+        try (MappingIterator<UserDto> iterator = objectMapper.readerFor(UserDto.class).readValues(users)) {
+            for (; iterator.hasNextValue(); row++) {
+                chunk.add(new PendingUser(row, iterator.nextValue()));
+                if (chunk.size() == chunkSize) {
+                    results.accept(provisionChunk(chunk, userRole, administrator));
+                    chunk.clear();
+                }
+            }
+        } catch (JsonProcessingException ex) {
+            log.error("Malformed user at row {} of bulk provisioning", row, ex);
+            results.accept(provisionChunk(chunk, userRole, administrator));
+            results.accept(List.of(rejected(row, null, "Malformed user: " + ex.getOriginalMessage())));
+            return;
+        }
+
+        results.accept(provisionChunk(chunk, userRole, administrator));
+    }
+
+    private List<ProvisioningResultDto> provisionChunk(List<PendingUser> chunk, Role userRole, String administrator) {
+        List<ProvisioningResultDto> results = new ArrayList<>(chunk.size());
+        List<PendingUser> accepted = validate(chunk, results);
+
+        if (!accepted.isEmpty()) {
+            results.addAll(insert(accepted, userRole, administrator));
+        }
+
+        log.info("Provisioned chunk of {} users; {} created", chunk.size(), results.stream()
+                .filter(result -> ProvisioningResultDto.CREATED.equals(result.getStatus())).count());
+        results.sort(Comparator.comparingInt(ProvisioningResultDto::getRow));
+        return results;
+    }
+
+    /**
+     * Applies the signup rules to the chunk, adding a rejection to the results for every user breaking them.
+     */
+    private List<PendingUser> validate(List<PendingUser> chunk, List<ProvisioningResultDto> results) {
+        List<PendingUser> valid = new ArrayList<>(chunk.size());
+        Set<String> usernameKeys = new HashSet<>();
+
+        for (PendingUser pendingUser : chunk) {
+            UserDto user = pendingUser.user();
+            Set<ConstraintViolation<UserDto>> violations = validator.validate(user);
+            if (!violations.isEmpty()) {
+                results.add(rejected(pendingUser.row(), user.getEmail(), violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining(", "))));
+            } else if (!usernameKeys.add(AppUser.usernameKeyOf(user.getEmail()))) {
+                results.add(rejected(pendingUser.row(), user.getEmail(), new UserExistException().getMessage()));
+            } else if (breachedPasswordChecker.isBreached(user.getPassword())) {
+                results.add(rejected(pendingUser.row(), user.getEmail(),
+                        new BreachedPasswordException().getMessage()));
+            } else {
+                valid.add(pendingUser);
+            }
+        }
+
+        Set<String> existing = usernameKeys.isEmpty() ? Set.of()
+                : new HashSet<>(userRepository.findExistingUsernameKeys(usernameKeys));
+        List<PendingUser> accepted = new ArrayList<>(valid.size());
+        for (PendingUser pendingUser : valid) {
+            if (existing.contains(AppUser.usernameKeyOf(pendingUser.user().getEmail()))) {
+                results.add(rejected(pendingUser.row(), pendingUser.user().getEmail(),
+                        new UserExistException().getMessage()));
+            } else {
+                accepted.add(pendingUser);
+            }
+        }
+        return accepted;
+    }
+
+    private List<ProvisioningResultDto> insert(List<PendingUser> accepted, Role userRole, String administrator) {
+        List<String> hashes;
+        try {
+            hashes = passwordEncoder.encodeAll(accepted.stream().map(pendingUser -> pendingUser.user().getPassword())
+                    .toList());
+        } catch (PasswordHashingUnavailableException ex) {
+            return rejectAll(accepted, ex.getMessage());
+        }
+
+        List<AppUser> users = new ArrayList<>(accepted.size());
+        List<SecurityEvent> securityEvents = new ArrayList<>(accepted.size());
+        for (int i = 0; i < accepted.size(); i++) {
+            UserDto user = accepted.get(i).user();
+            users.add(new AppUser(user.getName(), user.getLastname(), user.getEmail(), hashes.get(i)));
+            securityEvents.add(provisionUserEvent(administrator, user.getEmail()));
+        }
+
+        Map<String, Long> ids;
+        try {
+            ids = transactionTemplate.execute(status -> userBatchRepository.insertUsers(users, userRole.getId()));
+        } catch (DataAccessException ex) {
+            log.error("Bulk provisioning of {} users rolled back", accepted.size(), ex);
+            return rejectAll(accepted, "Chunk rolled back: " + ex.getMostSpecificCause().getMessage());
+        }
+        securityEventsService.recordSecurityEvents(securityEvents);
+
+        List<ProvisioningResultDto> results = new ArrayList<>(accepted.size());
+        for (PendingUser pendingUser : accepted) {
+            String email = pendingUser.user().getEmail();
+            results.add(created(pendingUser.row(), email.toLowerCase(), ids.get(AppUser.usernameKeyOf(email))));
+        }
+        return results;
+    }
+
+    private static List<ProvisioningResultDto> rejectAll(List<PendingUser> pendingUsers, String message) {
+        return pendingUsers.stream()
+                .map(pendingUser -> rejected(pendingUser.row(), pendingUser.user().getEmail(), message))
+                .collect(Collectors.toList());
+    }
+
+    private record PendingUser(int row, UserDto user) {
+    }
+}
@@ -14,13 +14,18 @@ import account.exception.user.RoleNotFoundException;
 import account.exception.user.UserExistException;
 import account.repository.RoleRepository;
 import account.repository.UserRepository;
+import account.security.AccessTokenService;
+import account.security.CredentialCache;
+import account.service.password.BreachedPasswordChecker;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.LockedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -33,6 +38,7 @@ import java.util.Optional;
 import java.util.stream.Collectors;
 import static account.enums.RoleActionEnum.GRANT;
 import static account.enums.UserRoleEnum.ADMINISTRATOR;
+import static account.service.FailedLoginTracker.MAX_LOGIN_ATTEMPTS;
 import static account.service.SecurityEventsService.changePasswordEvent;
 import static account.service.SecurityEventsService.createUserEvent;
 import static account.service.SecurityEventsService.deleteUserEvent;
@@ -41,64 +47,92 @@ import static account.service.SecurityEventsService.removeRoleEvent;
 
 @Service
 @Slf4j
-public class UserService implements UserDetailsService {
+public class UserService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
     private final SecurityEventsService securityEventsService;
+    private final CredentialCache credentialCache;
+    private final AccessTokenService accessTokenService;
+    private final UserPrincipalCache principalCache;
+    private final FailedLoginTracker failedLoginTracker;
+    private final BreachedPasswordChecker breachedPasswordChecker;
 
     @Autowired
     public UserService(UserRepository userRepository, RoleRepository roleRepository, PasswordEncoder passwordEncoder,
-                       SecurityEventsService securityEventsService) {
+                       SecurityEventsService securityEventsService, CredentialCache credentialCache,
+                       AccessTokenService accessTokenService, UserPrincipalCache principalCache,
+                       FailedLoginTracker failedLoginTracker, BreachedPasswordChecker breachedPasswordChecker) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.passwordEncoder = passwordEncoder;
         this.securityEventsService = securityEventsService;
+        this.credentialCache = credentialCache;
+        this.accessTokenService = accessTokenService;
+        this.principalCache = principalCache;
+        this.failedLoginTracker = failedLoginTracker;
+        this.breachedPasswordChecker = breachedPasswordChecker;
     }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
 
-        Optional<AppUser> user = userRepository.findByUsernameIgnoreCase(username);
+        Optional<AppUser> user = principalCache.get(username, () -> userRepository.findByUsernameIgnoreCase(username));
         if (user.isPresent()){
             AppUser retrievedUser = user.get();
-            log.info("Loaded user {} with failed attempts {}, account non locked {} and roles {}", username,
-                    retrievedUser.getFailedAttempt(), retrievedUser.isAccountNonLocked(),
-                    user.get().getRoles().stream().map(Role::getName).collect(Collectors.toList()));
+            if (log.isDebugEnabled()) {
+                log.debug("Loaded user {} with failed attempts {}, account non locked {} and roles {}", username,
+                        failedLoginTracker.failures(username), retrievedUser.isAccountNonLocked(),
+                        retrievedUser.getRoles().stream().map(Role::getName).collect(Collectors.toList()));
+            }
 
             return retrievedUser;
         } else{
             securityEventsService.recordLoginFailedEvent(username);
             log.error("Trying to load user by username; not found {}", username);
-            throw new UsernameNotFoundException(String.format("Username[%s] not found"));
+            throw new UsernameNotFoundException(String.format("Username[%s] not found", username));
         }
     }
 
+    /**
+     * Stores a password hash re-encoded by the authentication provider after a successful login, e.g. when the
+     * configured BCrypt strength is higher than the one used for the stored hash.
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        AppUser userToBeUpdated = findUserAndThrowExceptionIfDoesExist(user.getUsername()).get();
+        userToBeUpdated.setPassword(newPassword);
+        AppUser savedUser = userRepository.save(userToBeUpdated);
+
+        principalCache.evict(user.getUsername());
+        credentialCache.invalidate(user.getUsername());
+        log.info("Upgraded password hash of user {}", user.getUsername());
+        return savedUser;
+    }
+
     public void handleFailedLogin(String failedUsername) {
 
-        final int MAX_LOGIN_ATTEMPTS = 5;
         log.debug("Login failed; logging a new security event and increasing failed attempted");
 
-        Optional<AppUser> appUserOpt = userRepository.findByUsernameIgnoreCase(failedUsername);
+        Optional<AppUser> appUserOpt = principalCache.get(failedUsername,
+                () -> userRepository.findByUsernameIgnoreCase(failedUsername));
         if(appUserOpt.isPresent()){
             AppUser user = appUserOpt.get();
 
-            user.setFailedAttempt(user.getFailedAttempt() + 1);
-            log.debug("Failed attempts for user {} now is {}", user.getUsername(), user.getFailedAttempt());
+            int failedAttempts = failedLoginTracker.recordFailure(failedUsername);
+            log.debug("Failed attempts for user {} now is {}", user.getUsername(), failedAttempts);
 
-            userRepository.save(user);
             securityEventsService.recordLoginFailedEvent(failedUsername);
 
-            if(user.getFailedAttempt() >= MAX_LOGIN_ATTEMPTS && !isAdministrator(user)){
-
-                log.error("User {} is blocked due too much attempts!", failedUsername);
-                securityEventsService.recordBruteForceEvent(failedUsername);
+            if(failedAttempts >= MAX_LOGIN_ATTEMPTS && !isAdministrator(user)){
 
-                user.setAccountNonLocked(false);
-
-                securityEventsService.recordLockUserEvent(failedUsername, failedUsername);
-                userRepository.save(user);
+                if(userRepository.lockUser(user.getId()) > 0) {
+                    log.error("User {} is blocked due too much attempts!", failedUsername);
+                    securityEventsService.recordBruteForceEvent(failedUsername);
+                    securityEventsService.recordLockUserEvent(failedUsername, failedUsername);
+                    invalidateCachedAuthentication(failedUsername);
+                }
 
                 throw new LockedException("User account is locked");
             }
@@ -106,6 +140,12 @@ public class UserService implements UserDetailsService {
         }
     }
 
+    private void invalidateCachedAuthentication(String username){
+        principalCache.evict(username);
+        credentialCache.invalidate(username);
+        accessTokenService.revoke(username);
+    }
+
     private boolean isAdministrator(AppUser user){
         return user.getRoles()
                 .stream()
@@ -113,26 +153,23 @@ public class UserService implements UserDetailsService {
     }
 
     public void resetFailedLoginAttempts(AppUser userDetails){
-        if(userDetails.getFailedAttempt() > 0) {
-            userDetails.setFailedAttempt(0);
-            userRepository.save(userDetails);
-        }
+        failedLoginTracker.reset(userDetails.getUsername());
     }
 
     public AppUser registerNewUser(String name, String lastName, String email, String password){
 
-        if(breachedPasswords().contains(password)){
+        if(breachedPasswordChecker.isBreached(password)){
             throw new BreachedPasswordException();
         }
 
         log.debug("Signing up new user with e-mai {}", email);
 
-        List<AppUser> allUsers = userRepository.findAll();
-        blockDuplicatedUsers(email, allUsers);
+        blockDuplicatedUsers(email);
+        boolean firstUser = !userRepository.existsByIdNotNull();
 
         AppUser newUser = new AppUser(name, lastName, email, passwordEncoder.encode(password));
 
-        if(allUsers.isEmpty()){
+        if(firstUser){
             newUser.setRoles(Arrays.asList(roleRepository.findByNameIgnoreCase(ADMINISTRATOR.getName()).get()));
             log.debug("First user, setting its role to ADMINISTRATOR! user is {}", email);
         } else {
@@ -141,14 +178,24 @@ public class UserService implements UserDetailsService {
         }
 
         log.info("Registering a new user [name={}, lastName={}, email={}]", name, lastName, email);
-        AppUser createdUser = this.userRepository.save(newUser);
+        AppUser createdUser;
+        try {
+            createdUser = this.userRepository.saveAndFlush(newUser);
+        } catch (DataIntegrityViolationException ex){
+            log.error("User {} already exists!", email);
+            throw new UserExistException();
+        }
         securityEventsService.recordSecurityEvent(createUserEvent(email));
         return createdUser;
     }
 
-    private void blockDuplicatedUsers(String userTobeAddedEmail, List<AppUser> allUsers){
+    /**
+     * Cheap pre-check by the indexed username key; a concurrent signup for the same e-mail is still caught by
+     * the unique constraint when the user is flushed.
+     */
+    private void blockDuplicatedUsers(String userTobeAddedEmail){
 
-        if(allUsers.size() > 1 && allUsers.stream().anyMatch(usr -> usr.getUsername().equalsIgnoreCase(userTobeAddedEmail))){
+        if(userRepository.existsByUsernameKey(AppUser.usernameKeyOf(userTobeAddedEmail))){
             log.error("User {} already exists!", userTobeAddedEmail);
             throw new UserExistException();
         }
@@ -163,33 +210,17 @@ public class UserService implements UserDetailsService {
             throw new MatchingPasswordException();
         }
 
-        if(breachedPasswords().contains(newPassword)){
+        if(breachedPasswordChecker.isBreached(newPassword)){
             throw new BreachedPasswordException();
         }
 
         userToBeUpdated.setPassword(passwordEncoder.encode(newPassword));
         userRepository.save(userToBeUpdated);
+        invalidateCachedAuthentication(userEmail);
 
         securityEventsService.recordSecurityEvent(changePasswordEvent(userEmail));
     }
 
-    private List<String> breachedPasswords(){
-        return Arrays.asList(
-                "PasswordForJanuary",
-                "PasswordForFebruary",
-                "PasswordForMarch",
-                "PasswordForApril",
-                "PasswordForMay",
-                "PasswordForJune",
-                "PasswordForJuly",
-                "PasswordForAugust",
-                "PasswordForSeptember",
-                "PasswordForOctober",
-                "PasswordForNovember",
-                "PasswordForDecember"
-        );
-    }
-
     private Optional<AppUser> findUserAndThrowExceptionIfDoesExist(String username){
         Optional<AppUser> userOpt = userRepository.findByUsernameIgnoreCase(username);
 
@@ -216,6 +247,7 @@ public class UserService implements UserDetailsService {
         }
 
         userRepository.delete(userToBeDeleted);
+        invalidateCachedAuthentication(userToDeleteEmail);
         securityEventsService.recordSecurityEvent(deleteUserEvent(loggedInUser, userToDeleteEmail));
     }
 
@@ -273,6 +305,7 @@ public class UserService implements UserDetailsService {
         }
 
         AppUser savedUser = userRepository.save(user);
+        invalidateCachedAuthentication(userEmail);
         securityEventsService.recordSecurityEvents(securityEvents);
         return savedUser;
     }
@@ -389,11 +422,12 @@ public class UserService implements UserDetailsService {
 
         if(actionEnum.equals(AccessActionEnum.UNLOCK)){
             user.setAccountNonLocked(true);
-            user.setFailedAttempt(0);
+            failedLoginTracker.reset(username);
             securityEventsService.recordUnlockUserEvent(principal, username);
         }
 
         AppUser savedUser = userRepository.save(user);
+        invalidateCachedAuthentication(username);
         log.info("Updated user {} isAccountNonLocked state to {}", username,  savedUser.isAccountNonLocked());
     }
 
@@ -0,0 +1,62 @@
+package account.service.audit;
+
+import account.entity.SecurityEvent;
+import account.repository.SecurityEventFilter;
+import account.repository.SecurityEventQueryRepository;
+import account.repository.SecurityEventRepository;
+import account.repository.UserBatchRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Keeps security events in the {@code security_event} table, inserted with JDBC batches.
+ */
+public class JdbcSecurityEventStore implements SecurityEventStore {
+
+    private final SecurityEventRepository securityEventRepository;
+    private final SecurityEventQueryRepository securityEventQueryRepository;
+    private final UserBatchRepository userBatchRepository;
+
+    public JdbcSecurityEventStore(SecurityEventRepository securityEventRepository,
+                                  SecurityEventQueryRepository securityEventQueryRepository,
+                                  UserBatchRepository userBatchRepository) {
+        this.securityEventRepository = securityEventRepository;
+        this.securityEventQueryRepository = securityEventQueryRepository;
+        this.userBatchRepository = userBatchRepository;
+    }
+
+    @Override
+    public void append(List<SecurityEvent> events) {
+        userBatchRepository.insertSecurityEvents(events);
+    }
+
+    @Override
+    public List<SecurityEvent> findAll() {
+        return securityEventRepository.findAll();
+    }
+
+    @Override
+    public List<SecurityEvent> findPage(SecurityEventFilter filter, Long beforeId, int limit) {
+        return securityEventQueryRepository.findPage(filter, beforeId, limit);
+    }
+
+    @Override
+    public List<SecurityEvent> findAfter(long afterId, int limit) {
+        return securityEventQueryRepository.findAfter(afterId, limit);
+    }
+
+    /**
+     * Deletes one batch per statement, so no transaction holds locks on more than {@code batchSize} rows.
+     */
+    @Override
+    public long deleteDatedBefore(LocalDate date, int batchSize) {
+        long deleted = 0;
+        int batch;
+        do {
+            batch = securityEventQueryRepository.deleteDatedBefore(date, batchSize);
+            deleted += batch;
+        } while (batch == batchSize);
+        return deleted;
+    }
+}
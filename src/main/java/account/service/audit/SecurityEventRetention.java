@@ -0,0 +1,52 @@
+package account.service.audit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.Period;
+
+/**
+ * Deletes security events older than {@code max-age} every {@code interval}, in batches of {@code batch-size}.
+ * Their hourly counts are kept by {@link SecurityEventRollups}, which counted them when they were stored.
+ */
+@Slf4j
+@Component
+public class SecurityEventRetention {
+
+    private final SecurityEventStore securityEventStore;
+    private final boolean enabled;
+    private final Period maxAge;
+    private final int batchSize;
+
+    @Autowired
+    public SecurityEventRetention(SecurityEventStore securityEventStore,
+                                  @Value("${account.security.events.retention.enabled:true}") boolean enabled,
+                                  @Value("${account.security.events.retention.max-age:P90D}") Period maxAge,
+                                  @Value("${account.security.events.retention.batch-size:1000}") int batchSize) {
+        this.securityEventStore = securityEventStore;
+        this.enabled = enabled;
+        this.maxAge = maxAge;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${account.security.events.retention.interval:PT1H}")
+    public void deleteExpiredEvents() {
+        if (!enabled) {
+            return;
+        }
+
+        LocalDate cutoff = LocalDate.now().minus(maxAge);
+        try {
+            long deleted = securityEventStore.deleteDatedBefore(cutoff, batchSize);
+            if (deleted > 0) {
+                log.info("Deleted {} security events dated before {}", deleted, cutoff);
+            }
+        } catch (RuntimeException ex) {
+            log.error("Not possible to delete security events dated before {}", cutoff, ex);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package account.service.audit;
+
+import account.entity.SecurityEvent;
+import account.repository.SecurityEventCountFilter;
+import account.repository.SecurityEventRollupRepository;
+import account.repository.SecurityEventRollupRepository.EventCount;
+import account.repository.SecurityEventRollupRepository.RollupKey;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps hourly counts of security events per action, subject and path.
+ * <p>
+ * Stored events are counted in memory and the counts are added to the rollup table every {@code flush-interval},
+ * so recording events costs no database work and the table gets one row per bucket rather than per event. Counts
+ * are flushed before they are queried and on shutdown. Events are bucketed by the hour they are stored in, or by
+ * their date for events stored on a later day, such as spilled events loaded back on start.
+ */
+@Slf4j
+@Component
+public class SecurityEventRollups {
+
+    private final SecurityEventRollupRepository securityEventRollupRepository;
+    private final Object lock = new Object();
+
+    private Map<RollupKey, Long> pending = new HashMap<>();
+
+    @Autowired
+    public SecurityEventRollups(SecurityEventRollupRepository securityEventRollupRepository) {
+        this.securityEventRollupRepository = securityEventRollupRepository;
+    }
+
+    public void count(List<SecurityEvent> events) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate today = now.toLocalDate();
+        LocalDateTime currentHour = now.truncatedTo(ChronoUnit.HOURS);
+
+        synchronized (lock) {
+            for (SecurityEvent event : events) {
+                LocalDateTime bucket = event.getDate() == null || event.getDate().equals(today)
+                        ? currentHour : event.getDate().atStartOfDay();
+                pending.merge(new RollupKey(bucket, event.getAction(), event.getSubject(), event.getPath()), 1L,
+                        Long::sum);
+            }
+        }
+    }
+
+    public List<EventCount> findCounts(SecurityEventCountFilter filter, int limit) {
+        flush();
+        return securityEventRollupRepository.findCounts(filter, limit);
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${account.security.events.rollups.flush-interval:PT10S}")
+    public void flush() {
+        Map<RollupKey, Long> counts;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            counts = pending;
+            pending = new HashMap<>();
+        }
+
+        try {
+            securityEventRollupRepository.addCounts(counts);
+            log.debug("Flushed {} security event rollups", counts.size());
+        } catch (RuntimeException ex) {
+            log.error("Not possible to flush {} security event rollups; retrying later", counts.size(), ex);
+            synchronized (lock) {
+                counts.forEach((key, count) -> pending.merge(key, count, Long::sum));
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package account.service.audit;
+
+import account.entity.SecurityEvent;
+import account.repository.SecurityEventFilter;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Where security events are kept. Events are never updated, so a store only has to append and scan them by id.
+ */
+public interface SecurityEventStore {
+
+    /**
+     * Stores the events and sets their ids, which grow in the order events are appended.
+     */
+    void append(List<SecurityEvent> events);
+
+    List<SecurityEvent> findAll();
+
+    /**
+     * Events matching {@code filter}, newest first.
+     *
+     * @param beforeId only events with a lower id are returned, if set
+     */
+    List<SecurityEvent> findPage(SecurityEventFilter filter, Long beforeId, int limit);
+
+    /**
+     * Events with ids above {@code afterId}, oldest first.
+     */
+    List<SecurityEvent> findAfter(long afterId, int limit);
+
+    /**
+     * Deletes events dated before {@code date}, at most {@code batchSize} at a time.
+     *
+     * @return number of events deleted
+     */
+    long deleteDatedBefore(LocalDate date, int batchSize);
+}
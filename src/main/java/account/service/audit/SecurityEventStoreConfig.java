@@ -0,0 +1,45 @@
+package account.service.audit;
+
+import account.repository.SecurityEventQueryRepository;
+import account.repository.SecurityEventRepository;
+import account.repository.UserBatchRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Slf4j
+@Configuration
+public class SecurityEventStoreConfig {
+
+    public enum StoreType {
+        JDBC, FILE
+    }
+
+    @Bean
+    public SecurityEventStore securityEventStore(
+            @Value("${account.security.events.store:JDBC}") StoreType storeType,
+            @Value("${account.security.events.file-store.directory:}") String directory,
+            @Value("${account.security.events.file-store.segment-size:64MB}") DataSize segmentSize,
+            @Value("${account.security.events.file-store.retention:P90D}") Duration retention,
+            @Value("${account.security.events.file-store.fsync:false}") boolean fsync,
+            SecurityEventRepository securityEventRepository,
+            SecurityEventQueryRepository securityEventQueryRepository,
+            UserBatchRepository userBatchRepository) throws IOException {
+
+        if (storeType == StoreType.JDBC) {
+            return new JdbcSecurityEventStore(securityEventRepository, securityEventQueryRepository,
+                    userBatchRepository);
+        }
+
+        Path segments = directory.isBlank()
+                ? Path.of(System.getProperty("java.io.tmpdir"), "security-events") : Path.of(directory);
+        log.info("Storing security events in segments of {} under {}", segmentSize, segments);
+        return new SegmentedFileSecurityEventStore(segments, segmentSize.toBytes(), retention, fsync);
+    }
+}
@@ -0,0 +1,208 @@
+package account.service.audit;
+
+import account.dto.SecurityEventDto;
+import account.entity.SecurityEvent;
+import account.exception.TooManySubscribersException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes security events to Server-Sent Events subscribers as soon as they are stored.
+ * <p>
+ * Every subscriber has its own buffer of {@code buffer-size} events, drained by a delivery task on a shared pool.
+ * Events are published a writer batch at a time, so the buffer must hold at least {@code batch-size} events, and
+ * should hold several batches for a subscriber to absorb bursts. A subscriber whose buffer overflows, including
+ * while it is still catching up, is disconnected rather than buffered without bound; as events carry their id, it
+ * can reconnect with {@code Last-Event-ID} and first receive what it missed from the {@link SecurityEventStore}.
+ */
+@Slf4j
+@Component
+public class SecurityEventTail {
+
+    private static final String EVENT_NAME = "security-event";
+
+    private final SecurityEventStore securityEventStore;
+    private final ObjectWriter eventWriter;
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final Duration timeout;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService delivery;
+    private final Counter disconnectedSubscribers;
+
+    @Autowired
+    public SecurityEventTail(SecurityEventStore securityEventStore, ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry,
+                             @Value("${account.security.events.batch-size:500}") int batchSize,
+                             @Value("${account.security.events.tail.buffer-size:2048}") int bufferSize,
+                             @Value("${account.security.events.tail.max-subscribers:50}") int maxSubscribers,
+                             @Value("${account.security.events.tail.timeout:PT30M}") Duration timeout) {
+        if (bufferSize < batchSize) {
+            throw new IllegalArgumentException("account.security.events.tail.buffer-size (" + bufferSize +
+                    ") must not be smaller than account.security.events.batch-size (" + batchSize + ")");
+        }
+        this.securityEventStore = securityEventStore;
+        this.eventWriter = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.timeout = timeout;
+        AtomicInteger threads = new AtomicInteger();
+        this.delivery = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "security-event-tail-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.disconnectedSubscribers = meterRegistry.counter("security.events.tail.disconnected");
+        Gauge.builder("security.events.tail.subscribers", subscribers, Set::size).register(meterRegistry);
+    }
+
+    /**
+     * @param lastEventId when present, events recorded after it are sent first
+     */
+    public SseEmitter subscribe(Optional<Long> lastEventId) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new TooManySubscribersException();
+        }
+
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(emitter, lastEventId.orElse(Long.MIN_VALUE));
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(ex -> subscribers.remove(subscriber));
+
+        subscriber.scheduled.set(true);
+        subscribers.add(subscriber);
+        delivery.execute(() -> {
+            if (lastEventId.isPresent()) {
+                subscriber.replay();
+            }
+            if (subscribers.contains(subscriber)) {
+                subscriber.drain();
+            }
+        });
+        log.info("New security event subscriber, resuming after {}", lastEventId.orElse(null));
+        return emitter;
+    }
+
+    /**
+     * Queues written events, in id order, for every subscriber.
+     */
+    public void publish(List<SecurityEvent> events) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+
+        List<SecurityEventDto> dtos = events.stream().map(SecurityEventDto::toDto).toList();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(dtos);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        delivery.shutdownNow();
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final BlockingQueue<SecurityEventDto> buffer = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile long lastSentId;
+
+        private Subscriber(SseEmitter emitter, long lastSentId) {
+            this.emitter = emitter;
+            this.lastSentId = lastSentId;
+        }
+
+        private void offer(List<SecurityEventDto> events) {
+            for (SecurityEventDto event : events) {
+                if (!buffer.offer(event)) {
+                    disconnect();
+                    return;
+                }
+            }
+            if (scheduled.compareAndSet(false, true)) {
+                delivery.execute(this::drain);
+            }
+        }
+
+        private void replay() {
+            try {
+                List<SecurityEvent> missed;
+                do {
+                    missed = securityEventStore.findAfter(lastSentId, bufferSize);
+                    for (SecurityEvent event : missed) {
+                        send(SecurityEventDto.toDto(event));
+                    }
+                } while (missed.size() == bufferSize && subscribers.contains(this));
+            } catch (IOException | RuntimeException ex) {
+                close(ex);
+            }
+        }
+
+        private void drain() {
+            do {
+                try {
+                    SecurityEventDto event;
+                    while ((event = buffer.poll()) != null) {
+                        if (event.getId() > lastSentId) {
+                            send(event);
+                        }
+                    }
+                } catch (IOException | RuntimeException ex) {
+                    close(ex);
+                    return;
+                } finally {
+                    scheduled.set(false);
+                }
+            } while (!buffer.isEmpty() && subscribers.contains(this) && scheduled.compareAndSet(false, true));
+        }
+
+        private void send(SecurityEventDto event) throws IOException {
+            emitter.send(SseEmitter.event().id(event.getId().toString()).name(EVENT_NAME)
+                    .data(eventWriter.writeValueAsString(event)));
+            lastSentId = event.getId();
+        }
+
+        private void disconnect() {
+            if (subscribers.remove(this)) {
+                log.warn("Disconnecting slow security event subscriber after event {}", lastSentId);
+                disconnectedSubscribers.increment();
+                buffer.clear();
+                emitter.complete();
+            }
+        }
+
+        private void close(Exception ex) {
+            if (subscribers.remove(this)) {
+                log.debug("Security event subscriber gone", ex);
+                emitter.completeWithError(ex);
+            }
+        }
+    }
+}
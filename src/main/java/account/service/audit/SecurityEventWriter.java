@@ -0,0 +1,430 @@
+package account.service.audit;
+
+import account.entity.SecurityEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Write-behind pipeline for security events, so that recording an event costs a request an enqueue rather than a
+ * database round trip.
+ * <p>
+ * Events go to a {@link BoundedEventQueue} drained by a single writer thread, which appends them to the
+ * {@link SecurityEventStore} in batches of {@code batch-size} events, or whatever is pending once
+ * {@code flush-interval} has passed. When the queue is full the {@code overflow-policy} applies: {@code BLOCK} waits
+ * for room, {@code DROP} discards the event and counts it in {@code security.events.dropped}, and {@code SPILL}
+ * appends it to {@code spill-file}. Batches failing to be stored are spilled or dropped the same way. Spilled events
+ * are loaded back by the writer thread on start and, while running, once the queue is at most half full again, at
+ * most every {@code spill-replay-interval}; the file is moved aside first, so that events spilled meanwhile go to a
+ * new file, and whatever could not be stored is spilled again.
+ * <p>
+ * Only failures to store a batch spill or drop it: once stored, failing to count events in the rollups or to
+ * publish them to the tail is logged, since spilling the batch would store it twice.
+ * <p>
+ * The writer starts once the schema is in place and stops after the web server, flushing pending events, including
+ * those enqueued by requests that saw it running just before it stopped; events recorded after that are stored
+ * right away.
+ */
+@Slf4j
+@Component
+public class SecurityEventWriter implements SmartLifecycle {
+
+    public enum OverflowPolicy {
+        BLOCK, DROP, SPILL
+    }
+
+    private static final long BLOCK_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    private final SecurityEventStore securityEventStore;
+    private final SecurityEventTail securityEventTail;
+    private final SecurityEventRollups securityEventRollups;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter spillWriter;
+    private final BoundedEventQueue<SecurityEvent> queue;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final OverflowPolicy overflowPolicy;
+    private final Path spillFile;
+    private final Path replayFile;
+    private final Path replayProgressFile;
+    private final long spillReplayIntervalNanos;
+    private final Duration shutdownTimeout;
+    private final Counter droppedEvents;
+    private final Counter spilledEvents;
+    private final Thread writer;
+
+    private final Object finalDrain = new Object();
+
+    private volatile boolean running = true;
+    private volatile boolean idle;
+    private volatile boolean writerDone;
+    private volatile boolean spilled;
+
+    @Autowired
+    public SecurityEventWriter(SecurityEventStore securityEventStore, SecurityEventTail securityEventTail,
+                               SecurityEventRollups securityEventRollups, ObjectMapper objectMapper,
+                               MeterRegistry meterRegistry,
+                               @Value("${account.security.events.queue-capacity:8192}") int queueCapacity,
+                               @Value("${account.security.events.batch-size:500}") int batchSize,
+                               @Value("${account.security.events.flush-interval:PT0.2S}") Duration flushInterval,
+                               @Value("${account.security.events.overflow-policy:BLOCK}")
+                               OverflowPolicy overflowPolicy,
+                               @Value("${account.security.events.spill-file:}") String spillFile,
+                               @Value("${account.security.events.spill-replay-interval:PT5S}")
+                               Duration spillReplayInterval,
+                               @Value("${account.security.events.shutdown-timeout:PT10S}")
+                               Duration shutdownTimeout) {
+        this.securityEventStore = securityEventStore;
+        this.securityEventTail = securityEventTail;
+        this.securityEventRollups = securityEventRollups;
+        this.objectMapper = objectMapper;
+        this.spillWriter = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        this.queue = new BoundedEventQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.overflowPolicy = overflowPolicy;
+        this.spillFile = spillFile.isBlank()
+                ? Path.of(System.getProperty("java.io.tmpdir"), "security-events.spill") : Path.of(spillFile);
+        this.replayFile = this.spillFile.resolveSibling(this.spillFile.getFileName() + ".replay");
+        this.replayProgressFile = this.spillFile.resolveSibling(this.spillFile.getFileName() + ".replay.progress");
+        this.spillReplayIntervalNanos = spillReplayInterval.toNanos();
+        this.shutdownTimeout = shutdownTimeout;
+        this.droppedEvents = meterRegistry.counter("security.events.dropped");
+        this.spilledEvents = meterRegistry.counter("security.events.spilled");
+        Gauge.builder("security.events.pending", queue, BoundedEventQueue::size).register(meterRegistry);
+
+        this.writer = new Thread(this::run, "security-event-writer");
+        this.writer.setDaemon(true);
+    }
+
+    public void write(SecurityEvent event) {
+        if (!running) {
+            insert(List.of(event));
+            return;
+        }
+
+        while (!queue.offer(event)) {
+            switch (overflowPolicy) {
+                case DROP -> {
+                    droppedEvents.increment();
+                    log.warn("Security event queue full; dropping {}", event);
+                    return;
+                }
+                case SPILL -> {
+                    spill(List.of(event));
+                    return;
+                }
+                case BLOCK -> LockSupport.parkNanos(BLOCK_BACKOFF_NANOS);
+            }
+        }
+        if (!running) {
+            flushAfterWriter();
+        } else if (idle || queue.size() >= batchSize) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Flushes an event offered while stopping, in case the writer had already drained the queue for the last time.
+     * The queue has a single consumer, so the queue is only drained here once the writer is done with it; until then
+     * the writer's last drain, under the same lock, picks the event up.
+     */
+    private void flushAfterWriter() {
+        synchronized (finalDrain) {
+            if (writerDone) {
+                flushRemaining(new ArrayList<>(batchSize));
+            }
+        }
+    }
+
+    private void run() {
+        replaySpilledEvents();
+
+        List<SecurityEvent> batch = new ArrayList<>(batchSize);
+        long lastFlush = System.nanoTime();
+        long lastReplay = lastFlush;
+        while (running || !queue.isEmpty()) {
+            if (spilled && running && queue.size() <= queue.capacity() / 2
+                    && System.nanoTime() - lastReplay >= spillReplayIntervalNanos) {
+                replaySpilledEvents();
+                lastReplay = System.nanoTime();
+            }
+            queue.drainTo(batch, batchSize - batch.size());
+
+            long sinceFlush = System.nanoTime() - lastFlush;
+            if (batch.size() >= batchSize || (!batch.isEmpty() && (sinceFlush >= flushIntervalNanos || !running))) {
+                flush(batch);
+                lastFlush = System.nanoTime();
+            } else if (batch.isEmpty()) {
+                idle = true;
+                if (queue.isEmpty() && running) {
+                    LockSupport.parkNanos(this, flushIntervalNanos);
+                }
+                idle = false;
+                lastFlush = System.nanoTime();
+            } else if (queue.isEmpty()) {
+                LockSupport.parkNanos(this, flushIntervalNanos - sinceFlush);
+            }
+        }
+        synchronized (finalDrain) {
+            flushRemaining(batch);
+            writerDone = true;
+        }
+    }
+
+    private void flushRemaining(List<SecurityEvent> batch) {
+        queue.drainTo(batch, batchSize - batch.size());
+        while (!batch.isEmpty()) {
+            flush(batch);
+            queue.drainTo(batch, batchSize);
+        }
+    }
+
+    private void flush(List<SecurityEvent> batch) {
+        try {
+            insert(batch);
+        } catch (RuntimeException ex) {
+            log.error("Not possible to write {} security events", batch.size(), ex);
+            if (overflowPolicy == OverflowPolicy.SPILL) {
+                spill(batch);
+            } else {
+                droppedEvents.increment(batch.size());
+            }
+        }
+        batch.clear();
+    }
+
+    private void insert(List<SecurityEvent> events) {
+        securityEventStore.append(events);
+        log.debug("Wrote {} security events", events.size());
+        countAndPublish(events);
+    }
+
+    private void countAndPublish(List<SecurityEvent> events) {
+        try {
+            securityEventRollups.count(events);
+        } catch (RuntimeException ex) {
+            log.error("Not possible to count {} stored security events", events.size(), ex);
+        }
+        try {
+            securityEventTail.publish(events);
+        } catch (RuntimeException ex) {
+            log.error("Not possible to publish {} stored security events", events.size(), ex);
+        }
+    }
+
+    private synchronized void spill(List<SecurityEvent> events) {
+        List<String> lines = new ArrayList<>(events.size());
+        try {
+            for (SecurityEvent event : events) {
+                lines.add(spillWriter.writeValueAsString(event));
+            }
+        } catch (IOException ex) {
+            log.error("Not possible to spill {} security events to {}", events.size(), spillFile, ex);
+            droppedEvents.increment(events.size());
+            return;
+        }
+        if (spillLines(lines)) {
+            spilledEvents.increment(events.size());
+        }
+    }
+
+    private synchronized boolean spillLines(List<String> lines) {
+        try (BufferedWriter out = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (String line : lines) {
+                out.write(line);
+                out.newLine();
+            }
+            spilled = true;
+            return true;
+        } catch (IOException ex) {
+            log.error("Not possible to spill {} security events to {}", lines.size(), spillFile, ex);
+            droppedEvents.increment(lines.size());
+            return false;
+        }
+    }
+
+    /**
+     * Stores the spilled events, moving the spill file aside first so that spilling carries on meanwhile. A
+     * replay file left over by a replay that did not finish, such as one cut short by a crash, is replayed first,
+     * from the line recorded in its progress file after the last batch stored. Lines that cannot be parsed, such as
+     * one torn by a crash while spilling, are skipped and counted as dropped.
+     */
+    private void replaySpilledEvents() {
+        synchronized (this) {
+            spilled = false;
+            if (!Files.exists(replayFile)) {
+                if (!Files.exists(spillFile)) {
+                    return;
+                }
+                try {
+                    Files.deleteIfExists(replayProgressFile);
+                    Files.move(spillFile, replayFile, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException ex) {
+                    log.error("Not possible to move spilled security events from {} to {}", spillFile, replayFile,
+                            ex);
+                    return;
+                }
+            } else if (Files.exists(spillFile)) {
+                spilled = true;
+            }
+        }
+
+        List<SecurityEvent> batch = new ArrayList<>(batchSize);
+        List<String> batchLines = new ArrayList<>(batchSize);
+        long storedLines = readReplayProgress();
+        long lineNumber = 0;
+        long replayed = 0;
+        boolean stored = true;
+        try (BufferedReader in = Files.newBufferedReader(replayFile, StandardCharsets.UTF_8)) {
+            String line;
+            while (stored && (line = in.readLine()) != null) {
+                if (++lineNumber <= storedLines || line.isBlank()) {
+                    continue;
+                }
+                SecurityEvent event;
+                try {
+                    event = objectMapper.readValue(line, SecurityEvent.class);
+                } catch (JsonProcessingException ex) {
+                    log.warn("Skipping unreadable spilled security event at line {} of {}", lineNumber, replayFile,
+                            ex);
+                    droppedEvents.increment();
+                    continue;
+                }
+                event.setId(null);
+                batch.add(event);
+                batchLines.add(line);
+                if (batch.size() == batchSize) {
+                    stored = replay(batch, batchLines, in);
+                    if (stored) {
+                        replayed += batch.size();
+                        writeReplayProgress(lineNumber);
+                    }
+                    batch.clear();
+                    batchLines.clear();
+                }
+            }
+            if (stored && !batch.isEmpty() && replay(batch, batchLines, in)) {
+                replayed += batch.size();
+                writeReplayProgress(lineNumber);
+            }
+        } catch (IOException | RuntimeException ex) {
+            log.error("Not possible to replay spilled security events from {} after {} events; resuming later",
+                    replayFile, replayed, ex);
+            spilled = true;
+            return;
+        }
+
+        try {
+            Files.delete(replayFile);
+            Files.deleteIfExists(replayProgressFile);
+            log.info("Replayed {} spilled security events from {}", replayed, replayFile);
+        } catch (IOException ex) {
+            log.error("Not possible to delete replayed security events in {}", replayFile, ex);
+        }
+    }
+
+    /**
+     * @return number of lines of the replay file whose events are already stored
+     */
+    private long readReplayProgress() {
+        try {
+            return Files.exists(replayProgressFile)
+                    ? Long.parseLong(Files.readString(replayProgressFile, StandardCharsets.UTF_8).trim()) : 0;
+        } catch (IOException | NumberFormatException ex) {
+            log.warn("Not possible to read replay progress from {}; replaying {} from the start", replayProgressFile,
+                    replayFile, ex);
+            return 0;
+        }
+    }
+
+    private void writeReplayProgress(long storedLines) throws IOException {
+        Path temporary = replayProgressFile.resolveSibling(replayProgressFile.getFileName() + ".tmp");
+        Files.writeString(temporary, Long.toString(storedLines), StandardCharsets.UTF_8);
+        Files.move(temporary, replayProgressFile, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Stores a batch of replayed events. When that fails, the batch and the rest of the replay file are spilled
+     * again, so that the events already stored are not replayed twice.
+     */
+    private boolean replay(List<SecurityEvent> batch, List<String> batchLines, BufferedReader rest)
+            throws IOException {
+        try {
+            securityEventStore.append(batch);
+        } catch (RuntimeException ex) {
+            log.error("Not possible to store {} spilled security events; spilling them again", batch.size(), ex);
+            List<String> lines = new ArrayList<>(batchLines);
+            String line;
+            while ((line = rest.readLine()) != null) {
+                if (!line.isBlank()) {
+                    lines.add(line);
+                }
+            }
+            spillLines(lines);
+            return false;
+        }
+        log.debug("Wrote {} spilled security events", batch.size());
+        countAndPublish(batch);
+        return true;
+    }
+
+    @Override
+    public void start() {
+        writer.start();
+        log.info("Writing security events in batches of {} through a queue of {} events, overflow policy {}",
+                batchSize, queue.capacity(), overflowPolicy);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(shutdownTimeout.toMillis());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            log.error("Security event writer did not finish within {}; {} events pending", shutdownTimeout,
+                    queue.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return writer.isAlive();
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+}
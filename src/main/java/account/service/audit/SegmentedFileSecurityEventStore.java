@@ -0,0 +1,522 @@
+package account.service.audit;
+
+import account.entity.SecurityEvent;
+import account.repository.SecurityEventFilter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Keeps security events in append-only segment files rather than the database.
+ * <p>
+ * A segment starts with a header ({@code magic, version, first id}) followed by records of
+ * {@code payload length, CRC32C of the payload, id, epoch day, action, subject, object, path}, strings being stored
+ * as a length and UTF-8 bytes. Every appended batch is a single gathering {@link FileChannel} write to the active
+ * segment. Once the active segment would exceed {@code segment-size} it is sealed: an index file with its id and
+ * date range is written next to it and a new segment is started, and sealed segments whose newest event is older
+ * than {@code retention} are deleted.
+ * <p>
+ * At startup sealed segments are known from their index files; only the active segment is scanned, checking every
+ * record's CRC and cutting off a torn last write. Reads memory-map the segments whose id and date ranges can match
+ * the query and scan their records, newest segments first for pages.
+ */
+@Slf4j
+public class SegmentedFileSecurityEventStore implements SecurityEventStore, AutoCloseable {
+
+    private static final int SEGMENT_MAGIC = 0x53455631;
+    private static final int INDEX_MAGIC = 0x53455849;
+    private static final int VERSION = 1;
+    private static final int SEGMENT_HEADER_SIZE = 16;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int FIXED_PAYLOAD_SIZE = 16;
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final long MAX_SEGMENT_SIZE = 1L << 30;
+    private static final String SEGMENT_SUFFIX = ".segment";
+    private static final String INDEX_SUFFIX = ".index";
+
+    private final Path directory;
+    private final long segmentSize;
+    private final Duration retention;
+    private final boolean fsync;
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+
+    private Segment active;
+    private FileChannel activeChannel;
+    private long nextId = 1;
+
+    public SegmentedFileSecurityEventStore(Path directory, long segmentSize, Duration retention, boolean fsync)
+            throws IOException {
+        if (segmentSize <= SEGMENT_HEADER_SIZE || segmentSize > MAX_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Security event segment size must be at most " + MAX_SEGMENT_SIZE +
+                    " bytes");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        this.retention = retention;
+        this.fsync = fsync;
+        recover();
+    }
+
+    @Override
+    public synchronized void append(List<SecurityEvent> events) {
+        long firstId = nextId;
+        try {
+            List<ByteBuffer> pending = new ArrayList<>(events.size());
+            long pendingBytes = 0;
+            long id = firstId;
+            for (SecurityEvent event : events) {
+                ByteBuffer record = encode(id++, event);
+                if (active.length + pendingBytes + record.remaining() > segmentSize
+                        && (active.length > SEGMENT_HEADER_SIZE || pendingBytes > 0)) {
+                    write(pending, pendingBytes);
+                    pending.clear();
+                    pendingBytes = 0;
+                    roll();
+                }
+                pending.add(record);
+                pendingBytes += record.remaining();
+            }
+            write(pending, pendingBytes);
+        } catch (IOException ex) {
+            discardUnaccountedBytes();
+            throw new UncheckedIOException("Not possible to append security events to " + active.file, ex);
+        }
+
+        for (int i = 0; i < events.size(); i++) {
+            events.get(i).setId(firstId + i);
+        }
+    }
+
+    @Override
+    public List<SecurityEvent> findAll() {
+        List<SecurityEvent> events = new ArrayList<>();
+        for (Segment segment : segments.values()) {
+            scan(segment, event -> {
+                events.add(event);
+                return true;
+            });
+        }
+        return events;
+    }
+
+    @Override
+    public List<SecurityEvent> findPage(SecurityEventFilter filter, Long beforeId, int limit) {
+        long upperId = beforeId == null ? Long.MAX_VALUE : beforeId;
+        long fromDay = filter.from() == null ? Long.MIN_VALUE : filter.from().toEpochDay();
+        long toDay = filter.to() == null ? Long.MAX_VALUE : filter.to().toEpochDay();
+
+        List<SecurityEvent> page = new ArrayList<>(limit);
+        for (Segment segment : segments.descendingMap().values()) {
+            if (page.size() >= limit) {
+                break;
+            }
+            if (segment.baseId >= upperId || segment.isEmpty()
+                    || segment.maxEpochDay < fromDay || segment.minEpochDay > toDay) {
+                continue;
+            }
+
+            int remaining = limit - page.size();
+            Deque<SecurityEvent> newest = new ArrayDeque<>(remaining + 1);
+            scan(segment, event -> {
+                if (event.getId() >= upperId) {
+                    return false;
+                }
+                if (matches(filter, event)) {
+                    newest.addLast(event);
+                    if (newest.size() > remaining) {
+                        newest.removeFirst();
+                    }
+                }
+                return true;
+            });
+            while (!newest.isEmpty()) {
+                page.add(newest.removeLast());
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public List<SecurityEvent> findAfter(long afterId, int limit) {
+        Long firstSegment = segments.floorKey(afterId + 1);
+        Map<Long, Segment> candidates = firstSegment == null ? segments : segments.tailMap(firstSegment);
+
+        List<SecurityEvent> events = new ArrayList<>(limit);
+        for (Segment segment : candidates.values()) {
+            if (events.size() >= limit) {
+                break;
+            }
+            if (segment.lastId <= afterId) {
+                continue;
+            }
+            scan(segment, event -> {
+                if (event.getId() > afterId) {
+                    events.add(event);
+                }
+                return events.size() < limit;
+            });
+        }
+        return events;
+    }
+
+    /**
+     * Deletes whole segments only, so events dated before {@code date} stay until every event of their segment
+     * is; {@code batchSize} does not apply.
+     */
+    @Override
+    public synchronized long deleteDatedBefore(LocalDate date, int batchSize) {
+        return deleteSegmentsBefore(date.toEpochDay());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (activeChannel != null) {
+            activeChannel.force(false);
+            activeChannel.close();
+        }
+    }
+
+    private static boolean matches(SecurityEventFilter filter, SecurityEvent event) {
+        return (filter.action() == null || filter.action().equals(event.getAction()))
+                && (filter.subject() == null || filter.subject().equals(event.getSubject()))
+                && (filter.path() == null || filter.path().equals(event.getPath()))
+                && (filter.from() == null || (event.getDate() != null && !event.getDate().isBefore(filter.from())))
+                && (filter.to() == null || (event.getDate() != null && !event.getDate().isAfter(filter.to())));
+    }
+
+    private void write(List<ByteBuffer> records, long bytes) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+
+        ByteBuffer[] buffers = records.toArray(ByteBuffer[]::new);
+        long written = 0;
+        while (written < bytes) {
+            written += activeChannel.write(buffers);
+        }
+        if (fsync) {
+            activeChannel.force(false);
+        }
+
+        for (ByteBuffer record : buffers) {
+            active.add(record.getLong(RECORD_HEADER_SIZE), record.getLong(RECORD_HEADER_SIZE + Long.BYTES));
+        }
+        nextId = active.lastId + 1;
+        active.length += bytes;
+    }
+
+    /**
+     * Cuts off whatever a failed write left after the last complete record, so the next append starts there.
+     */
+    private void discardUnaccountedBytes() {
+        try {
+            if (activeChannel.isOpen()) {
+                activeChannel.truncate(active.length);
+                activeChannel.position(active.length);
+            }
+        } catch (IOException ex) {
+            log.error("Not possible to truncate security event segment {}", active.file, ex);
+        }
+    }
+
+    private void roll() throws IOException {
+        activeChannel.force(false);
+        activeChannel.close();
+        seal(active);
+
+        active = createSegment(nextId);
+        applyRetention();
+    }
+
+    private Segment createSegment(long baseId) throws IOException {
+        Path file = directory.resolve(String.format("%020d%s", baseId, SEGMENT_SUFFIX));
+        activeChannel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE)
+                .putInt(SEGMENT_MAGIC).putInt(VERSION).putLong(baseId).flip();
+        while (header.hasRemaining()) {
+            activeChannel.write(header);
+        }
+
+        Segment segment = new Segment(file, baseId);
+        segment.length = SEGMENT_HEADER_SIZE;
+        segments.put(baseId, segment);
+        log.info("Started security event segment {}", file);
+        return segment;
+    }
+
+    private void seal(Segment segment) throws IOException {
+        Path index = indexOf(segment.file);
+        Path temporary = index.resolveSibling(index.getFileName() + ".tmp");
+        ByteBuffer content = ByteBuffer.allocate(Integer.BYTES + 4 * Long.BYTES)
+                .putInt(INDEX_MAGIC).putLong(segment.lastId).putLong(segment.minEpochDay)
+                .putLong(segment.maxEpochDay).putLong(segment.length).flip();
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+            channel.force(false);
+        }
+        Files.move(temporary, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        segment.sealed = true;
+    }
+
+    private void applyRetention() {
+        if (retention == null || retention.isZero() || retention.isNegative()) {
+            return;
+        }
+        deleteSegmentsBefore(LocalDate.now().minusDays(retention.toDays()).toEpochDay());
+    }
+
+    /**
+     * Deletes the sealed segments whose newest event is dated before {@code epochDay}.
+     *
+     * @return number of events deleted
+     */
+    private long deleteSegmentsBefore(long epochDay) {
+        long deleted = 0;
+        for (Segment segment : segments.values()) {
+            if (!segment.sealed || segment.maxEpochDay >= epochDay) {
+                continue;
+            }
+            segments.remove(segment.baseId);
+            deleted += segment.lastId - segment.baseId + 1;
+            try {
+                Files.deleteIfExists(indexOf(segment.file));
+                Files.deleteIfExists(segment.file);
+                log.info("Deleted security event segment {} past retention", segment.file);
+            } catch (IOException ex) {
+                log.error("Not possible to delete security event segment {}", segment.file, ex);
+            }
+        }
+        return deleted;
+    }
+
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            boolean last = i == files.size() - 1;
+            Segment segment = Files.exists(indexOf(file)) ? readIndex(file) : scanForRecovery(file);
+            if (segment == null) {
+                continue;
+            }
+            segments.put(segment.baseId, segment);
+            if (!segment.sealed && !last) {
+                seal(segment);
+            }
+        }
+
+        Map.Entry<Long, Segment> newest = segments.lastEntry();
+        if (newest != null) {
+            nextId = Math.max(newest.getValue().baseId, newest.getValue().lastId + 1);
+        }
+        if (newest == null || newest.getValue().sealed) {
+            active = createSegment(nextId);
+        } else {
+            active = newest.getValue();
+            activeChannel = FileChannel.open(active.file, StandardOpenOption.WRITE);
+            activeChannel.truncate(active.length);
+            activeChannel.position(active.length);
+        }
+        applyRetention();
+        log.info("Opened {} security event segments; next event id {}", segments.size(), nextId);
+    }
+
+    private Segment readIndex(Path file) throws IOException {
+        ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(indexOf(file)));
+        ByteBuffer header = map(file, SEGMENT_HEADER_SIZE);
+        if (content.remaining() != Integer.BYTES + 4 * Long.BYTES || content.getInt() != INDEX_MAGIC
+                || header.getInt(0) != SEGMENT_MAGIC) {
+            log.warn("Invalid index of security event segment {}; scanning it", file);
+            return scanForRecovery(file);
+        }
+
+        Segment segment = new Segment(file, header.getLong(8));
+        segment.lastId = content.getLong();
+        segment.minEpochDay = content.getLong();
+        segment.maxEpochDay = content.getLong();
+        segment.length = content.getLong();
+        segment.sealed = true;
+        return segment;
+    }
+
+    private Segment scanForRecovery(Path file) throws IOException {
+        long size = Files.size(file);
+        if (size < SEGMENT_HEADER_SIZE || size > MAX_SEGMENT_SIZE) {
+            log.error("Skipping security event segment {} of unexpected size {}", file, size);
+            return null;
+        }
+        ByteBuffer buffer = map(file, size);
+        if (buffer.getInt(0) != SEGMENT_MAGIC || buffer.getInt(4) != VERSION) {
+            log.error("Skipping {}, not a security event segment", file);
+            return null;
+        }
+
+        Segment segment = new Segment(file, buffer.getLong(8));
+        int position = SEGMENT_HEADER_SIZE;
+        CRC32C crc = new CRC32C();
+        while (position + RECORD_HEADER_SIZE <= size) {
+            int payloadLength = buffer.getInt(position);
+            if (payloadLength < FIXED_PAYLOAD_SIZE || position + RECORD_HEADER_SIZE + payloadLength > size) {
+                break;
+            }
+            crc.reset();
+            crc.update(buffer.slice(position + RECORD_HEADER_SIZE, payloadLength));
+            if ((int) crc.getValue() != buffer.getInt(position + Integer.BYTES)) {
+                break;
+            }
+            segment.add(buffer.getLong(position + RECORD_HEADER_SIZE),
+                    buffer.getLong(position + RECORD_HEADER_SIZE + Long.BYTES));
+            position += RECORD_HEADER_SIZE + payloadLength;
+        }
+        segment.length = position;
+        if (position < size) {
+            log.warn("Dropping {} bytes of incomplete or corrupt records at the end of {}", size - position, file);
+        }
+        return segment;
+    }
+
+    /**
+     * Hands the events of a segment to {@code consumer}, in id order, until it returns {@code false}.
+     */
+    private void scan(Segment segment, Predicate<SecurityEvent> consumer) {
+        long length = segment.length;
+        ByteBuffer buffer;
+        try {
+            buffer = segment.sealed ? segment.sealedBuffer() : map(segment.file, length);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Not possible to read security event segment " + segment.file, ex);
+        }
+
+        int position = SEGMENT_HEADER_SIZE;
+        while (position < length) {
+            int payloadLength = buffer.getInt(position);
+            if (!consumer.test(decode(buffer, position + RECORD_HEADER_SIZE))) {
+                return;
+            }
+            position += RECORD_HEADER_SIZE + payloadLength;
+        }
+    }
+
+    private static ByteBuffer encode(long id, SecurityEvent event) {
+        byte[][] strings = {utf8(event.getAction()), utf8(event.getSubject()), utf8(event.getObject()),
+                utf8(event.getPath())};
+        int payloadLength = FIXED_PAYLOAD_SIZE;
+        for (byte[] string : strings) {
+            payloadLength += Integer.BYTES + (string == null ? 0 : string.length);
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + payloadLength);
+        record.putInt(payloadLength).putInt(0)
+                .putLong(id)
+                .putLong(event.getDate() == null ? NO_DATE : event.getDate().toEpochDay());
+        for (byte[] string : strings) {
+            record.putInt(string == null ? -1 : string.length);
+            if (string != null) {
+                record.put(string);
+            }
+        }
+
+        CRC32C crc = new CRC32C();
+        crc.update(record.array(), RECORD_HEADER_SIZE, payloadLength);
+        record.putInt(Integer.BYTES, (int) crc.getValue());
+        return record.flip();
+    }
+
+    private static SecurityEvent decode(ByteBuffer buffer, int position) {
+        long id = buffer.getLong(position);
+        long epochDay = buffer.getLong(position + Long.BYTES);
+        int cursor = position + FIXED_PAYLOAD_SIZE;
+        String[] strings = new String[4];
+        for (int i = 0; i < strings.length; i++) {
+            int length = buffer.getInt(cursor);
+            cursor += Integer.BYTES;
+            if (length >= 0) {
+                byte[] bytes = new byte[length];
+                buffer.get(cursor, bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+                cursor += length;
+            }
+        }
+        return new SecurityEvent(id, epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay), strings[0],
+                strings[1], strings[2], strings[3]);
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer map(Path file, long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        }
+    }
+
+    private static Path indexOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return segment.resolveSibling(name.substring(0, name.length() - SEGMENT_SUFFIX.length()) + INDEX_SUFFIX);
+    }
+
+    private static final class Segment {
+
+        private final Path file;
+        private final long baseId;
+        private volatile long lastId;
+        private volatile long minEpochDay = Long.MAX_VALUE;
+        private volatile long maxEpochDay = Long.MIN_VALUE;
+        private volatile long length;
+        private volatile boolean sealed;
+        private volatile ByteBuffer sealedBuffer;
+
+        private Segment(Path file, long baseId) {
+            this.file = file;
+            this.baseId = baseId;
+            this.lastId = baseId - 1;
+        }
+
+        private boolean isEmpty() {
+            return lastId < baseId;
+        }
+
+        private void add(long id, long epochDay) {
+            lastId = id;
+            if (epochDay != NO_DATE) {
+                minEpochDay = Math.min(minEpochDay, epochDay);
+                maxEpochDay = Math.max(maxEpochDay, epochDay);
+            }
+        }
+
+        private ByteBuffer sealedBuffer() throws IOException {
+            ByteBuffer buffer = sealedBuffer;
+            if (buffer == null) {
+                buffer = map(file, length);
+                sealedBuffer = buffer;
+            }
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package account.service.password;
+
+/**
+ * Tells whether a password is known to be part of a breach corpus and therefore must not be used.
+ */
+public interface BreachedPasswordChecker {
+
+    boolean isBreached(String password);
+}
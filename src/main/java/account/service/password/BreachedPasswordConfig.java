@@ -0,0 +1,53 @@
+package account.service.password;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+@Slf4j
+@Configuration
+public class BreachedPasswordConfig {
+
+    @Bean
+    public BreachedPasswordChecker breachedPasswordChecker(
+            @Value("${account.security.breached-passwords.location:}") String location,
+            @Value("${account.security.breached-passwords.bloom-false-positive-rate:0.01}") double falsePositiveRate,
+            @Value("${account.security.breached-passwords.bloom-expected-insertions:0}") long expectedInsertions,
+            ResourceLoader resourceLoader) throws IOException {
+
+        if (location == null || location.isBlank()) {
+            log.info("No breached password corpus configured; using the built-in list");
+            return new StaticBreachedPasswordChecker();
+        }
+
+        return new MappedBreachedPasswordChecker(toPath(resourceLoader.getResource(location)), falsePositiveRate,
+                expectedInsertions);
+    }
+
+    /**
+     * Memory mapping needs a real file, so corpora bundled inside the application archive are extracted first,
+     * along with the Bloom filter stored next to them.
+     */
+    private static Path toPath(Resource resource) throws IOException {
+        if (resource.isFile()) {
+            return resource.getFile().toPath();
+        }
+
+        Path extracted = Files.createTempFile("breached-passwords", ".bin");
+        extracted.toFile().deleteOnExit();
+        extracted.resolveSibling(extracted.getFileName() + ".bloom").toFile().deleteOnExit();
+        try (InputStream inputStream = resource.getInputStream()) {
+            Files.copy(inputStream, extracted, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return extracted;
+    }
+}
@@ -0,0 +1,221 @@
+package account.service.password;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import com.google.common.hash.PrimitiveSink;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Checks passwords against a breach corpus stored as a file of binary SHA-1 digests (20 bytes each) sorted in
+ * ascending unsigned order, such as a converted "ordered by hash" Pwned Passwords dump.
+ * <p>
+ * The file is memory-mapped in chunks, so the corpus stays off heap and can exceed 2 GB, and looked up with a
+ * binary search comparing records in place. An on-heap Bloom filter answers most negative lookups without touching
+ * the mapped pages at all; it is sized for {@code bloomExpectedInsertions} hashes, or the whole corpus when
+ * {@code 0}, and kept next to the corpus in a {@code .bloom} file. When that file is newer than the corpus and was
+ * built with the same settings, it is loaded instead of scanning the corpus on startup.
+ */
+@Slf4j
+public class MappedBreachedPasswordChecker implements BreachedPasswordChecker, AutoCloseable {
+
+    private static final int HASH_LENGTH = 20;
+
+    private static final int RECORDS_PER_CHUNK = Integer.MAX_VALUE / HASH_LENGTH;
+
+    private static final int BLOOM_FILE_VERSION = 1;
+
+    /**
+     * A record in a mapped chunk or a wrapped digest, read as two longs and an int so that it is neither copied nor
+     * boxed.
+     */
+    private static final class Record {
+        private ByteBuffer buffer;
+        private int offset;
+
+        private Record at(ByteBuffer buffer, int offset) {
+            this.buffer = buffer;
+            this.offset = offset;
+            return this;
+        }
+
+        private int compareTo(Record other) {
+            int comparison = Long.compareUnsigned(buffer.getLong(offset), other.buffer.getLong(other.offset));
+            if (comparison == 0) {
+                comparison = Long.compareUnsigned(buffer.getLong(offset + 8),
+                        other.buffer.getLong(other.offset + 8));
+            }
+            if (comparison == 0) {
+                comparison = Integer.compareUnsigned(buffer.getInt(offset + 16),
+                        other.buffer.getInt(other.offset + 16));
+            }
+            return comparison;
+        }
+    }
+
+    private enum RecordFunnel implements Funnel<Record> {
+        INSTANCE;
+
+        @Override
+        public void funnel(Record record, PrimitiveSink into) {
+            into.putLong(record.buffer.getLong(record.offset))
+                    .putLong(record.buffer.getLong(record.offset + 8))
+                    .putInt(record.buffer.getInt(record.offset + 16));
+        }
+    }
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] chunks;
+    private final long recordCount;
+    private final BloomFilter<Record> bloomFilter;
+
+    public MappedBreachedPasswordChecker(Path corpus, double bloomFalsePositiveRate, long bloomExpectedInsertions)
+            throws IOException {
+        this.channel = FileChannel.open(corpus, StandardOpenOption.READ);
+
+        long size = channel.size();
+        if (size % HASH_LENGTH != 0) {
+            channel.close();
+            throw new IllegalArgumentException(String.format("Breached password corpus %s is not a sequence of " +
+                    "%d byte SHA-1 hashes", corpus, HASH_LENGTH));
+        }
+
+        this.recordCount = size / HASH_LENGTH;
+        this.chunks = new MappedByteBuffer[(int) ((recordCount + RECORDS_PER_CHUNK - 1) / RECORDS_PER_CHUNK)];
+        for (int i = 0; i < chunks.length; i++) {
+            long offset = (long) i * RECORDS_PER_CHUNK * HASH_LENGTH;
+            chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                    Math.min((long) RECORDS_PER_CHUNK * HASH_LENGTH, size - offset));
+        }
+
+        long expectedInsertions = Math.max(1, bloomExpectedInsertions > 0 ? bloomExpectedInsertions : recordCount);
+        Path bloomFile = corpus.resolveSibling(corpus.getFileName() + ".bloom");
+        BloomFilter<Record> persisted = readBloomFilter(corpus, bloomFile, expectedInsertions, bloomFalsePositiveRate);
+        if (persisted != null) {
+            this.bloomFilter = persisted;
+            log.info("Loaded Bloom filter of breached password corpus {} from {}", corpus, bloomFile);
+        } else {
+            this.bloomFilter = BloomFilter.create(RecordFunnel.INSTANCE, expectedInsertions, bloomFalsePositiveRate);
+            populateBloomFilter(corpus);
+            writeBloomFilter(bloomFile, expectedInsertions, bloomFalsePositiveRate);
+        }
+
+        log.info("Loaded breached password corpus {} with {} hashes", corpus, recordCount);
+    }
+
+    @Override
+    public boolean isBreached(String password) {
+        Record hash = new Record().at(ByteBuffer.wrap(sha1(password)), 0);
+        if (!bloomFilter.mightContain(hash)) {
+            return false;
+        }
+
+        Record candidate = new Record();
+        long low = 0;
+        long high = recordCount - 1;
+        while (low <= high) {
+            long middle = (low + high) >>> 1;
+            int comparison = record(middle, candidate).compareTo(hash);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void populateBloomFilter(Path corpus) throws IOException {
+        Record previous = new Record();
+        Record record = new Record();
+        for (long i = 0; i < recordCount; i++) {
+            record(i, record);
+            if (i > 0 && record(i - 1, previous).compareTo(record) > 0) {
+                channel.close();
+                throw new IllegalArgumentException(String.format("Breached password corpus %s is not sorted at " +
+                        "record %d", corpus, i));
+            }
+            bloomFilter.put(record);
+        }
+    }
+
+    /**
+     * @return the filter stored in {@code bloomFile}, or {@code null} when there is none usable for this corpus
+     */
+    private static BloomFilter<Record> readBloomFilter(Path corpus, Path bloomFile, long expectedInsertions,
+                                                       double falsePositiveRate) {
+        try {
+            if (!Files.exists(bloomFile)
+                    || Files.getLastModifiedTime(bloomFile).compareTo(Files.getLastModifiedTime(corpus)) < 0) {
+                return null;
+            }
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(bloomFile)))) {
+                if (in.readInt() != BLOOM_FILE_VERSION || in.readLong() != Files.size(corpus)
+                        || in.readLong() != expectedInsertions || in.readDouble() != falsePositiveRate) {
+                    return null;
+                }
+                return BloomFilter.readFrom(in, RecordFunnel.INSTANCE);
+            }
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Not possible to load Bloom filter from {}; rebuilding it", bloomFile, ex);
+            return null;
+        }
+    }
+
+    private void writeBloomFilter(Path bloomFile, long expectedInsertions, double falsePositiveRate) {
+        Path temporary = bloomFile.resolveSibling(bloomFile.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temporary)))) {
+                out.writeInt(BLOOM_FILE_VERSION);
+                out.writeLong(recordCount * HASH_LENGTH);
+                out.writeLong(expectedInsertions);
+                out.writeDouble(falsePositiveRate);
+                bloomFilter.writeTo(out);
+            }
+            Files.move(temporary, bloomFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            log.warn("Not possible to store Bloom filter in {}; it will be rebuilt on the next start", bloomFile, ex);
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException deleteEx) {
+                ex.addSuppressed(deleteEx);
+            }
+        }
+    }
+
+    private Record record(long index, Record destination) {
+        return destination.at(chunks[(int) (index / RECORDS_PER_CHUNK)],
+                (int) (index % RECORDS_PER_CHUNK) * HASH_LENGTH);
+    }
+
+    private static byte[] sha1(String password) {
+        try {
+            return MessageDigest.getInstance("SHA-1").digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-1 is not available", ex);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package account.service.password;
+
+import java.util.Set;
+
+/**
+ * Default checker with the small, hardcoded list of breached passwords this service has always rejected.
+ */
+public class StaticBreachedPasswordChecker implements BreachedPasswordChecker {
+
+    private static final Set<String> BREACHED_PASSWORDS = Set.of(
+            "PasswordForJanuary",
+            "PasswordForFebruary",
+            "PasswordForMarch",
+            "PasswordForApril",
+            "PasswordForMay",
+            "PasswordForJune",
+            "PasswordForJuly",
+            "PasswordForAugust",
+            "PasswordForSeptember",
+            "PasswordForOctober",
+            "PasswordForNovember",
+            "PasswordForDecember"
+    );
+
+    @Override
+    public boolean isBreached(String password) {
+        return BREACHED_PASSWORDS.contains(password);
+    }
+}
@@ -0,0 +1,214 @@
+package account.service.snapshot;
+
+import account.repository.PaymentBatchRepository.PeriodPayment;
+import account.repository.PaymentDetailsView;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeSet;
+
+/**
+ * Immutable, memory-mapped columnar file holding the payments of one closed payroll period.
+ * <p>
+ * Layout, all big endian: a header ({@code magic, version, period, rows, dictionary size, dictionary bytes}),
+ * the {@code user_id} and {@code salary} columns as longs, the username key, name and last name columns as ints
+ * referencing a dictionary, the dictionary offsets and finally the dictionary itself as UTF-8. Every distinct string
+ * is stored once and the dictionary is sorted, so dictionary references order like the strings they stand for; rows
+ * are sorted by username key, so a payment is found with two binary searches over the mapped pages.
+ */
+public final class PayrollSnapshot {
+
+    private static final int MAGIC = 0x50415953;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    private static final long NULL_SALARY = Long.MIN_VALUE;
+    private static final int NULL_REF = -1;
+
+    private final ByteBuffer buffer;
+    private final int period;
+    private final int rows;
+    private final int dictionarySize;
+    private final int salariesOffset;
+    private final int usernameRefsOffset;
+    private final int nameRefsOffset;
+    private final int lastNameRefsOffset;
+    private final int dictionaryOffsetsOffset;
+    private final int dictionaryOffset;
+
+    private PayrollSnapshot(ByteBuffer buffer, Path file) {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Not a payroll snapshot: " + file);
+        }
+        this.period = buffer.getInt(8);
+        this.rows = buffer.getInt(12);
+        this.dictionarySize = buffer.getInt(16);
+        int dictionaryBytes = buffer.getInt(20);
+
+        this.salariesOffset = HEADER_SIZE + rows * Long.BYTES;
+        this.usernameRefsOffset = salariesOffset + rows * Long.BYTES;
+        this.nameRefsOffset = usernameRefsOffset + rows * Integer.BYTES;
+        this.lastNameRefsOffset = nameRefsOffset + rows * Integer.BYTES;
+        this.dictionaryOffsetsOffset = lastNameRefsOffset + rows * Integer.BYTES;
+        this.dictionaryOffset = dictionaryOffsetsOffset + (dictionarySize + 1) * Integer.BYTES;
+        if (buffer.capacity() != dictionaryOffset + dictionaryBytes) {
+            throw new IllegalArgumentException("Truncated payroll snapshot: " + file);
+        }
+    }
+
+    public static PayrollSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Payroll snapshot too large: " + file);
+            }
+            return new PayrollSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), file);
+        }
+    }
+
+    /**
+     * Writes the payments of {@code period} to a new snapshot, replacing {@code file} atomically once complete.
+     */
+    public static void write(Path file, int period, List<PeriodPayment> payments) throws IOException {
+        TreeSet<String> strings = new TreeSet<>();
+        for (PeriodPayment payment : payments) {
+            strings.add(payment.usernameKey());
+            addIfPresent(strings, payment.name());
+            addIfPresent(strings, payment.lastName());
+        }
+        List<String> dictionary = new ArrayList<>(strings);
+        Map<String, Integer> refs = new HashMap<>(dictionary.size() * 2);
+        List<byte[]> encoded = new ArrayList<>(dictionary.size());
+        int dictionaryBytes = 0;
+        for (String value : dictionary) {
+            refs.put(value, refs.size());
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            dictionaryBytes += bytes.length;
+        }
+
+        List<PeriodPayment> sorted = new ArrayList<>(payments);
+        sorted.sort(Comparator.comparing(PeriodPayment::usernameKey));
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(period);
+            out.writeInt(sorted.size());
+            out.writeInt(dictionary.size());
+            out.writeInt(dictionaryBytes);
+            for (PeriodPayment payment : sorted) {
+                out.writeLong(payment.userId());
+            }
+            for (PeriodPayment payment : sorted) {
+                out.writeLong(payment.salary() == null ? NULL_SALARY : payment.salary());
+            }
+            for (PeriodPayment payment : sorted) {
+                out.writeInt(refs.get(payment.usernameKey()));
+            }
+            for (PeriodPayment payment : sorted) {
+                out.writeInt(payment.name() == null ? NULL_REF : refs.get(payment.name()));
+            }
+            for (PeriodPayment payment : sorted) {
+                out.writeInt(payment.lastName() == null ? NULL_REF : refs.get(payment.lastName()));
+            }
+            int offset = 0;
+            for (byte[] bytes : encoded) {
+                out.writeInt(offset);
+                offset += bytes.length;
+            }
+            out.writeInt(offset);
+            for (byte[] bytes : encoded) {
+                out.write(bytes);
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void addIfPresent(TreeSet<String> strings, String value) {
+        if (value != null) {
+            strings.add(value);
+        }
+    }
+
+    public int period() {
+        return period;
+    }
+
+    public int size() {
+        return rows;
+    }
+
+    /**
+     * @param usernameKey username key as built by {@link account.entity.AppUser#usernameKeyOf(String)}
+     */
+    public Optional<PaymentDetailsView> find(String usernameKey) {
+        int ref = findDictionaryRef(usernameKey);
+        if (ref < 0) {
+            return Optional.empty();
+        }
+
+        int low = 0;
+        int high = rows - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int candidate = buffer.getInt(usernameRefsOffset + middle * Integer.BYTES);
+            if (candidate < ref) {
+                low = middle + 1;
+            } else if (candidate > ref) {
+                high = middle - 1;
+            } else {
+                long salary = buffer.getLong(salariesOffset + middle * Long.BYTES);
+                return Optional.of(new PaymentDetailsView(
+                        string(buffer.getInt(nameRefsOffset + middle * Integer.BYTES)),
+                        string(buffer.getInt(lastNameRefsOffset + middle * Integer.BYTES)),
+                        period, salary == NULL_SALARY ? null : salary));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private int findDictionaryRef(String value) {
+        Objects.requireNonNull(value);
+        int low = 0;
+        int high = dictionarySize - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = string(middle).compareTo(value);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return NULL_REF;
+    }
+
+    private String string(int ref) {
+        if (ref == NULL_REF) {
+            return null;
+        }
+        int start = buffer.getInt(dictionaryOffsetsOffset + ref * Integer.BYTES);
+        int end = buffer.getInt(dictionaryOffsetsOffset + (ref + 1) * Integer.BYTES);
+        byte[] bytes = new byte[end - start];
+        buffer.get(dictionaryOffset + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,168 @@
+package account.service.snapshot;
+
+import account.entity.ClosedPeriod;
+import account.entity.Payment;
+import account.exception.payment.InvalidPaymentException;
+import account.repository.ClosedPeriodRepository;
+import account.repository.PaymentBatchRepository;
+import account.repository.PaymentBatchRepository.PeriodPayment;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Closes payroll periods and serves their payments from {@link PayrollSnapshot} files.
+ * <p>
+ * Closing a period rejects any further writes to it, then copies its payments into a snapshot that single period
+ * lookups are answered from instead of the database. The payments stay in the database for range queries and
+ * exports; until a snapshot is mapped, lookups simply keep going to the database.
+ * <p>
+ * Whether a period is closed is decided in the database: every payment write locks the {@code payroll_period} rows
+ * of the periods it writes to with {@link #lockPeriods(Collection)} and holds them until it commits, and closing a
+ * period takes the same lock before marking it closed and reading its payments. Closing therefore waits for every
+ * write that saw the period open, and writes started later see it closed, on this node or any other.
+ */
+@Slf4j
+@Service
+public class PayrollSnapshotService {
+
+    private final ClosedPeriodRepository closedPeriodRepository;
+    private final PaymentBatchRepository paymentBatchRepository;
+    private final TransactionTemplate registration;
+    private final Path directory;
+    private final Set<Integer> closedPeriods = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, PayrollSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    @Autowired
+    public PayrollSnapshotService(ClosedPeriodRepository closedPeriodRepository,
+                                  PaymentBatchRepository paymentBatchRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${account.payments.snapshots.directory:}") String directory)
+            throws IOException {
+        this.closedPeriodRepository = closedPeriodRepository;
+        this.paymentBatchRepository = paymentBatchRepository;
+        this.registration = new TransactionTemplate(transactionManager);
+        this.registration.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.directory = Files.createDirectories(directory.isBlank()
+                ? Path.of(System.getProperty("java.io.tmpdir"), "payroll-snapshots") : Path.of(directory));
+
+        for (ClosedPeriod closedPeriod : closedPeriodRepository.findAll()) {
+            closedPeriods.add(closedPeriod.getPeriod());
+            mapSnapshot(closedPeriod.getPeriod(), Path.of(closedPeriod.getSnapshotFile()));
+        }
+    }
+
+    /**
+     * Whether the period was closed as of this node's knowledge; a cheap early check only, writes are rejected by
+     * {@link #lockPeriods(Collection)}.
+     */
+    public boolean isClosed(Integer period) {
+        return closedPeriods.contains(period);
+    }
+
+    public Optional<PayrollSnapshot> findSnapshot(Integer period) {
+        return Optional.ofNullable(snapshots.get(period));
+    }
+
+    /**
+     * Locks the periods for the rest of the caller's transaction, which must be the one writing their payments.
+     * Periods not written to before are registered first, in transactions of their own, so that there is a row to
+     * lock; rows are locked in period order, so writes to several periods cannot deadlock.
+     *
+     * @return the periods among them that are closed and must not be written to
+     */
+    public Set<Integer> lockPeriods(Collection<Integer> periods) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Payroll periods can only be locked within a transaction");
+        }
+        if (periods.isEmpty()) {
+            return Set.of();
+        }
+
+        List<Integer> sortedPeriods = periods.stream().distinct().sorted().toList();
+        Set<Integer> registered = paymentBatchRepository.findRegisteredPeriods(sortedPeriods);
+        for (Integer period : sortedPeriods) {
+            if (!registered.contains(period)) {
+                registration.executeWithoutResult(status -> paymentBatchRepository.registerPeriod(period));
+            }
+        }
+        return paymentBatchRepository.lockPeriods(sortedPeriods);
+    }
+
+    /**
+     * Closes a period and writes its snapshot. Once the period's lock is taken no write to it is in flight, and
+     * writes waiting for the lock find the period closed.
+     *
+     * @return number of payments in the snapshot
+     */
+    @Transactional
+    public int closePeriod(String period) {
+        Integer encodedPeriod = Payment.encodePeriod(period);
+        if (!lockPeriods(List.of(encodedPeriod)).isEmpty()) {
+            throw new InvalidPaymentException("Payroll period is already closed!");
+        }
+        paymentBatchRepository.markPeriodClosed(encodedPeriod);
+
+        Path file = directory.resolve("payroll-" + encodedPeriod + ".snapshot");
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    closedPeriods.add(encodedPeriod);
+                    mapSnapshot(encodedPeriod, file);
+                } else {
+                    deleteSnapshot(file);
+                }
+            }
+        });
+
+        List<PeriodPayment> payments = paymentBatchRepository.findPeriodPayments(encodedPeriod);
+        try {
+            PayrollSnapshot.write(file, encodedPeriod, payments);
+        } catch (IOException ex) {
+            log.error("Not possible to write snapshot of payroll period {}", period, ex);
+            throw new UncheckedIOException(ex);
+        }
+        closedPeriodRepository.save(new ClosedPeriod(encodedPeriod, payments.size(), file.toString(),
+                LocalDateTime.now()));
+
+        log.info("Closed payroll period {} with {} payments", period, payments.size());
+        return payments.size();
+    }
+
+    private void mapSnapshot(Integer period, Path file) {
+        try {
+            snapshots.put(period, PayrollSnapshot.open(file));
+        } catch (IOException | IllegalArgumentException ex) {
+            log.error("Not possible to map snapshot {} of payroll period {}; reading it from the database", file,
+                    Payment.decodePeriod(period), ex);
+        }
+    }
+
+    private static void deleteSnapshot(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            log.warn("Not possible to delete snapshot {}", file, ex);
+        }
+    }
+}
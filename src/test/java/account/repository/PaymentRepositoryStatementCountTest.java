@@ -0,0 +1,97 @@
+package account.repository;
+
+import account.entity.AppUser;
+import account.entity.Payment;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Payment listings must cost one SQL statement whatever the number of payments, rather than one per payment for
+ * its user and roles.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class PaymentRepositoryStatementCountTest {
+
+    private static final int PAYMENTS_PER_USER = 12;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (String email : List.of("JohnDoe@acme.com", "JaneDoe@acme.com")) {
+            AppUser user = entityManager.persist(new AppUser("John", "Doe", email, "password"));
+            for (int month = 1; month <= PAYMENTS_PER_USER; month++) {
+                entityManager.persist(new Payment(202300 + month, 100_000L + month, user));
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void fullHistoryIsOneStatement() {
+        List<PaymentDetailsView> payments = countingStatements(() ->
+                paymentRepository.findDetailsByUsernameKey("johndoe@acme.com"));
+
+        assertThat(payments).hasSize(PAYMENTS_PER_USER);
+        assertThat(payments.get(0).period()).isEqualTo(202312);
+    }
+
+    @Test
+    void singlePeriodIsOneStatement() {
+        Optional<PaymentDetailsView> payment = countingStatements(() ->
+                paymentRepository.findDetailsByUsernameKeyAndPeriod("johndoe@acme.com", 202305));
+
+        assertThat(payment).hasValueSatisfying(details -> assertThat(details.salary()).isEqualTo(100_005L));
+    }
+
+    @Test
+    void rangeIsOneStatement() {
+        List<PaymentDetailsView> payments = countingStatements(() ->
+                paymentRepository.findDetailsByUsernameKeyAndPeriodBetween("johndoe@acme.com", 202303, 202308));
+
+        assertThat(payments).extracting(PaymentDetailsView::period)
+                .containsExactly(202308, 202307, 202306, 202305, 202304, 202303);
+    }
+
+    @Test
+    void keysetPageIsOneStatement() {
+        List<PaymentDetailsView> payments = countingStatements(() ->
+                paymentRepository.findDetailsByUsernameKeyAndPeriodBetween("johndoe@acme.com", 0, 202309,
+                        PageRequest.of(0, 4)));
+
+        assertThat(payments).extracting(PaymentDetailsView::period)
+                .containsExactly(202309, 202308, 202307, 202306);
+    }
+
+    private <T> T countingStatements(Supplier<T> listing) {
+        T result = listing.get();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        return result;
+    }
+}
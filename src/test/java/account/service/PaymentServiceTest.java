@@ -0,0 +1,90 @@
+package account.service;
+
+import account.dto.PaymentDto;
+import account.entity.AppUser;
+import account.entity.Payment;
+import account.exception.payment.InvalidPaymentException;
+import account.repository.PaymentBatchRepository;
+import account.repository.PaymentDetailsView;
+import account.repository.PaymentRepository;
+import account.repository.UserBatchRepository;
+import account.service.snapshot.PayrollSnapshotService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Payment uploads are rejected only for the {@code (employee, period)} pairs they actually contain.
+ */
+@DataJpaTest
+@Import({PaymentService.class, PaymentBatchRepository.class, UserBatchRepository.class, PayslipFormatter.class,
+        PaymentHistoryCache.class, PayrollSnapshotService.class, PaymentServiceTest.Metrics.class})
+class PaymentServiceTest {
+
+    private static final String JOHN = "JohnDoe@acme.com";
+    private static final String JANE = "JaneDoe@acme.com";
+
+    @TestConfiguration
+    static class Metrics {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        AppUser john = entityManager.persist(new AppUser("John", "Doe", JOHN, "password"));
+        entityManager.persist(new AppUser("Jane", "Doe", JANE, "password"));
+        entityManager.persist(new Payment(202302, 100_000L, john));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void addsPaymentsWhoseUsersAndPeriodsOnlyExistInOtherPairs() {
+        paymentService.addUserPayments(List.of(
+                new PaymentDto(JOHN, "01-2023", 100_001L),
+                new PaymentDto(JANE, "02-2023", 200_002L)));
+
+        assertThat(paymentRepository.findDetailsByUsernameKey(AppUser.usernameKeyOf(JOHN)))
+                .extracting(PaymentDetailsView::period)
+                .containsExactly(202302, 202301);
+        assertThat(paymentRepository.findDetailsByUsernameKey(AppUser.usernameKeyOf(JANE)))
+                .extracting(PaymentDetailsView::period)
+                .containsExactly(202302);
+    }
+
+    @Test
+    void rejectsUploadContainingAnExistingPair() {
+        assertThatThrownBy(() -> paymentService.addUserPayments(List.of(
+                new PaymentDto(JANE, "01-2023", 200_001L),
+                new PaymentDto(JOHN, "02-2023", 100_002L))))
+                .isInstanceOf(InvalidPaymentException.class)
+                .hasMessage("Impossible to add duplicated payment!");
+
+        assertThat(paymentRepository.findDetailsByUsernameKey(AppUser.usernameKeyOf(JANE))).isEmpty();
+    }
+}